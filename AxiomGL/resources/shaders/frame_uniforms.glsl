@@ -0,0 +1,15 @@
+//Per-frame data shared by every program, filled once a frame by FrameUniforms
+//The layout is std140, so keep it in step with FrameUniforms.java
+layout (std140) uniform FrameUniforms {
+  mat4 projection;
+  mat4 view;
+  //Orthographic projection of the window, for the hud
+  mat4 ortho;
+  vec4 cameraPosition;
+  //Already in view space
+  vec4 lightPosition;
+  vec4 lightColor;
+  vec4 lightAmbient;
+  //x falloff, y radius
+  vec4 lightAttenuation;
+};
@@ -1,22 +1,21 @@
 #version 330
 
 in vec2 outTexCoord;
-in vec3 mvPos;
+in vec4 outColour;
 out vec4 fragColor;
 
 uniform sampler2D texture_sampler;
-uniform vec4 colour;
 uniform int hasTexture;
 
 void main()
 {
     if ( hasTexture == 1 )
     {
-        fragColor = colour * texture(texture_sampler, outTexCoord);
+        fragColor = outColour * texture(texture_sampler, outTexCoord);
     }
     else
     {
-        fragColor = colour;
+        fragColor = outColour;
     }
 }
 
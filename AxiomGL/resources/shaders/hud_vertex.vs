@@ -1,15 +1,18 @@
 #version 330
 
-layout (location=0) in vec3 position;
+// Written by HudBatch: positions are already in pixels
+layout (location=0) in vec2 position;
 layout (location=1) in vec2 texCoord;
-layout (location=2) in vec3 vertexNormal;
+layout (location=2) in vec4 vertexColour;
 
 out vec2 outTexCoord;
+out vec4 outColour;
 
-uniform mat4 projModelMatrix;
+#include "frame_uniforms.glsl"
 
 void main()
 {
-    gl_Position = projModelMatrix * vec4(position, 1.0);
+    gl_Position = ortho * vec4(position, 0.0, 1.0);
     outTexCoord = texCoord;
+    outColour = vertexColour;
 }
\ No newline at end of file
@@ -26,6 +26,7 @@ struct Light {
 in vec2 vUv;
 in vec3 vViewPosition;
 in vec3 vNormal;
+in vec3 vLightPosition;
 
 //import some common functions
 out vec4 fragColor;
@@ -157,15 +158,21 @@ const float albedo = 0.25;
 
 //Used to convert from gamma corrected rgb to not (look at toLinear and 
 
+//Variants are compiled with FLAT_SHADING, HAS_NORMAL_MAP and HAS_SPECULAR_MAP
+//defined or not, so each material only pays for the features it uses
 uniform sampler2D texDiffuse;
+#ifdef HAS_NORMAL_MAP
 uniform sampler2D texNormal;
+#endif
+#ifdef HAS_SPECULAR_MAP
 uniform sampler2D texSpecular;
+#else
+//Used in place of the specular map
+uniform float reflectance;
+#endif
 
-uniform int flatShading;
-//uniform mat4 model;
-//uniform mat4 view;
-uniform mat4 modelViewMatrix;
-uniform Light light;
+//Camera and light for this frame
+#include "frame_uniforms.glsl"
 
 //account for gamma-corrected images
 vec4 textureLinear(sampler2D uTex, vec2 uv) {
@@ -173,17 +180,17 @@ vec4 textureLinear(sampler2D uTex, vec2 uv) {
 }
 
 void main() {
+  Light light = Light(lightPosition.xyz, lightColor.rgb, lightAmbient.rgb, lightAttenuation.x, lightAttenuation.y);
+
   //determine the type of normals for lighting
-  vec3 normal = vec3(0.0);
-  if (flatShading == 1) {
-    normal = faceNormals(vViewPosition);
-  } else {
-    normal = vNormal;
-  }
+#ifdef FLAT_SHADING
+  vec3 normal = faceNormals(vViewPosition);
+#else
+  vec3 normal = vNormal;
+#endif
 
   //determine surface to light direction
-  vec4 lightPosition = modelViewMatrix * vec4(light.position, 1.0); //view * 
-  vec3 lightVector = lightPosition.xyz - vViewPosition;
+  vec3 lightVector = vLightPosition - vViewPosition;
   vec3 color = vec3(0.0);
 
   //calculate attenuation
@@ -194,15 +201,22 @@ void main() {
   //assume its in sRGB, so we need to correct for gamma
   vec2 uv = vUv * UV_SCALE;
   vec3 diffuseColor = textureLinear(texDiffuse, uv).rgb;
-  vec3 normalMap = textureLinear(texNormal, uv).rgb * 2.0 - 1.0;
+#ifdef HAS_SPECULAR_MAP
   float specularStrength = textureLinear(texSpecular, uv).r;
-  
-  //our normal map has an inverted green channel
-  normalMap.y *= -1.0;
+#else
+  float specularStrength = reflectance;
+#endif
 
   vec3 L = normalize(lightVector);              //light direction
   vec3 V = normalize(vViewPosition);            //eye direction
+#ifdef HAS_NORMAL_MAP
+  vec3 normalMap = textureLinear(texNormal, uv).rgb * 2.0 - 1.0;
+  //our normal map has an inverted green channel
+  normalMap.y *= -1.0;
   vec3 N = perturb(normalMap, normal, -V, vUv); //surface normal
+#else
+  vec3 N = normalize(normal);                   //surface normal
+#endif
 
   //compute our diffuse & specular terms
   float specular = specularStrength * computeSpecular(L, V, N, shininess) * specularScale * falloff;
@@ -7,22 +7,29 @@
 layout (location=0) in vec3 position;
 layout (location=1) in vec2 uv; //texCoord
 layout (location=2) in vec3 normal;
+//Per-instance model view matrix, occupies locations 3 to 6
+layout (location=3) in mat4 modelViewInstancedMatrix;
 
 //These are constants but not not compile-time constant
-uniform mat4 projection;
+#include "frame_uniforms.glsl"
 //uniform mat4 view;
 //uniform mat4 model;
 uniform mat4 modelViewMatrix;
+//1 when the model view matrix comes from the instance attribute
+uniform int isInstanced;
 
 //Output
 out vec3 vNormal;
 out vec2 vUv; //outTexCoord
 out vec3 vViewPosition;
+out vec3 vLightPosition;
 
 void main() {
+  mat4 modelView = isInstanced > 0 ? modelViewInstancedMatrix : modelViewMatrix;
+
   //Determine view space position
   //mat4 modelViewMatrix = view * model;
-  vec4 viewModelPosition = modelViewMatrix * vec4(position, 1.0);
+  vec4 viewModelPosition = modelView * vec4(position, 1.0);
 
   //Pass varyings to fragment shader
   vViewPosition = viewModelPosition.xyz;
@@ -33,5 +40,8 @@ void main() {
   //We could also do this CPU-side to avoid doing it per-vertex
   //mat3 normalMatrix = transpose(inverse(mat3(modelViewMatrix)));
   //vNormal = normalize(normalMatrix * normal);
-  vNormal = normalize(modelViewMatrix * vec4(normal, 0.0)).xyz;
+  vNormal = normalize(modelView * vec4(normal, 0.0)).xyz;
+
+  //The light position is the same for every vertex of an item
+  vLightPosition = (modelView * lightPosition).xyz;
 }
@@ -4,10 +4,11 @@ in vec2 outTexCoord;
 in vec3 mvPos;
 out vec4 fragColor;
 
+#include "frame_uniforms.glsl"
+
 uniform sampler2D texture_sampler;
-uniform vec3 ambientLight;
 
 void main()
 {
-    fragColor = vec4(ambientLight, 1) * texture(texture_sampler, outTexCoord);
+    fragColor = vec4(lightAmbient.rgb, 1) * texture(texture_sampler, outTexCoord);
 }
@@ -6,11 +6,13 @@ layout (location=2) in vec3 vertexNormal;
 
 out vec2 outTexCoord;
 
-uniform mat4 modelViewMatrix;
-uniform mat4 projectionMatrix;
+#include "frame_uniforms.glsl"
+
+uniform mat4 modelMatrix;
 
 void main()
 {
-    gl_Position = projectionMatrix * modelViewMatrix * vec4(position, 1.0);
+    //Drop the view translation so the skybox stays around the camera
+    gl_Position = projection * mat4(mat3(view)) * modelMatrix * vec4(position, 1.0);
     outTexCoord = texCoord;
 }
@@ -7,6 +7,14 @@
  * game, window, and the main thread
  * where the game is run. 
  * <br>
+ * By default input, updates and rendering all run on the
+ * game loop thread. With threaded updates the fixed rate
+ * updates move to an UPDATE_THREAD, which publishes a
+ * {@link SceneSnapshot} after each tick; the game loop
+ * thread keeps input and rendering and draws the latest
+ * snapshot. Turn it on with {@link #setThreadedUpdate(boolean)}
+ * or the axiom.engine.threaded system property.
+ * <br>
  * Example usage:
  * <pre>
  *      boolean vSync = true;
@@ -24,16 +32,25 @@ package com.axiom.engine;
 
 import com.axiom.engine.Utils.Timer;
 import com.axiom.engine.input.InputHandler;
+import com.axiom.engine.math.FrameScratch;
 
 public class Engine implements Runnable {
 
     public static final int TARGET_FPS = 75;
     public static final int TARGET_UPS = 30;
+    public static final String THREADED_PROPERTY = "axiom.engine.threaded";
+    private static final long UPDATE_INTERVAL_NANOS = 1000000000L / TARGET_UPS;
     private final Window window;
     private final Thread gameLoopThread;
     private final Timer timer;
     private final IGame gameLogic;
     private final InputHandler input;
+    private final SnapshotBuffer snapshots;
+    private final FramePacer framePacer;
+    private final FixedTimestep timestep;
+    private boolean threadedUpdate;
+    private Thread updateThread;
+    private volatile boolean running;
     /**
      * Construct an Engine
      * <br>
@@ -61,6 +78,30 @@ public class Engine implements Runnable {
         this.gameLogic = gameLogic;
         timer = Utils.makeTimer();
         input = new InputHandler();
+        snapshots = new SnapshotBuffer();
+        framePacer = new FramePacer(TARGET_FPS);
+        timestep = new FixedTimestep(TARGET_UPS);
+        threadedUpdate = Boolean.getBoolean(THREADED_PROPERTY);
+    }
+    
+    /**
+     * Tell if updates run on their own thread
+     * @return threaded?
+     */
+    public boolean isThreadedUpdate() {
+        return threadedUpdate;
+    }
+    
+    /**
+     * Run updates on their own thread
+     * <br>
+     * Must be set before {@link #start()}. The game must
+     * implement {@link IGame#snapshot(SceneSnapshot)} and
+     * {@link IGame#render(Window, SceneSnapshot, float)}.
+     * @param threadedUpdate true for an update thread
+     */
+    public void setThreadedUpdate(boolean threadedUpdate) {
+        this.threadedUpdate = threadedUpdate;
     }
     
     /**
@@ -117,27 +158,92 @@ public class Engine implements Runnable {
      * target fps.
      */
     protected void gameLoop() {
-        float elapsedTime;
-        float accumulator = 0f;
-        float interval = 1f / TARGET_UPS;
-
+        if (threadedUpdate) {
+            threadedGameLoop();
+            return;
+        }
         boolean running = true;
         while (running && !window.windowShouldClose()) {
-            elapsedTime = timer.getElapsedTime();
-            accumulator += elapsedTime;
+            int steps = timestep.advance(timer.getElapsedTime());
 
             input();
 
-            while (accumulator >= interval) {
-                update(interval);
-                accumulator -= interval;
-            }
+            runSteps(steps);
 
-            render();
+            // Draw the part of a tick the accumulator has not used up yet
+            render(timestep.getAlpha());
+            // Temporaries from this frame's updates and render are free again
+            FrameScratch.current().reset();
+
+            sync();
+        }
+    }
+    
+    /**
+     * Run the game with updates on their own thread
+     * <br>
+     * This thread takes input and renders the latest
+     * snapshot as fast as the window allows, while the
+     * update thread ticks at the target ups.
+     */
+    protected void threadedGameLoop() {
+        // The first snapshot is taken here, so the first frame has something to draw
+        gameLogic.snapshot(snapshots.beginWrite());
+        snapshots.publish();
+
+        running = true;
+        updateThread = new Thread(this::updateLoop, "UPDATE_THREAD");
+        updateThread.setDaemon(true);
+        updateThread.start();
+        try {
+            while (running && !window.windowShouldClose()) {
+                input();
+                SceneSnapshot snapshot = snapshots.acquire();
+                float alpha = (System.nanoTime() - snapshot.getTime()) / (float) UPDATE_INTERVAL_NANOS;
+                render(snapshot, Math.min(alpha, 1f));
+                FrameScratch.current().reset();
 
-            if ( !window.isvSync() ) {
                 sync();
             }
+        } finally {
+            running = false;
+            try {
+                updateThread.join();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Run fixed rate updates until the game loop stops
+     * <br>
+     * The body of the UPDATE_THREAD. After each round of
+     * updates the game's state is captured and published.
+     * Between steps the thread parks, then spins, until the
+     * next one is due.
+     */
+    private void updateLoop() {
+        Timer updateTimer = Utils.makeTimer();
+        updateTimer.init();
+        try {
+            while (running) {
+                int steps = timestep.advance(updateTimer.getElapsedTime());
+                if (steps == 0) {
+                    // Wait for the next step the same way frames wait, since sleep is coarse
+                    long untilNextStep = (long) ((1 - timestep.getAlpha()) * UPDATE_INTERVAL_NANOS);
+                    framePacer.waitUntil(System.nanoTime() + untilNextStep);
+                    continue;
+                }
+                runSteps(steps);
+                gameLogic.snapshot(snapshots.beginWrite());
+                snapshots.publish();
+                // The update thread has its own arena
+                FrameScratch.current().reset();
+            }
+        } catch (RuntimeException excp) {
+            excp.printStackTrace();
+            running = false;
         }
     }
     
@@ -152,25 +258,57 @@ public class Engine implements Runnable {
         //gameLogic.cleanup();                
     }
     
-    @Deprecated
     /**
      * Sync the window
      * <br>
      * This method holds up the thread
-     * until the target fps is met.
-     * @deprecated do not call
+     * until the target fps is met, unless
+     * vsync already paces the frames.
      */
     private void sync() {
-        float loopSlot = 1f / TARGET_FPS;
-        double endTime = timer.getLastLoopTime() + loopSlot;
-        while (timer.getTime() < endTime) {
-            try {
-                Thread.sleep(1);
-            } catch (InterruptedException ie) {
-            }
+        if ( window.isvSync() ) {
+            framePacer.markFrame();
+        } else {
+            framePacer.pace();
+        }
+    }
+    
+    /**
+     * Run update steps, timing each one
+     * @param steps how many steps the timestep handed out
+     */
+    private void runSteps(int steps) {
+        float interval = timestep.getInterval();
+        for (int i = 0; i < steps; i++) {
+            long start = System.nanoTime();
+            update(interval);
+            timestep.stepDone(System.nanoTime() - start);
         }
     }
     
+    /**
+     * Get the fixed timestep that hands out update steps
+     * <br>
+     * Its cap on steps per frame and its overflow policy
+     * keep a slow update from taking the whole game down;
+     * its counters show how often that happens.
+     * @return the update timestep
+     */
+    public FixedTimestep getFixedTimestep() {
+        return timestep;
+    }
+    
+    /**
+     * Get the pacer that holds frames to the target fps
+     * <br>
+     * Its target fps and spin window can be changed while
+     * the game runs, and it records frame time jitter.
+     * @return the frame pacer
+     */
+    public FramePacer getFramePacer() {
+        return framePacer;
+    }
+    
     /**
      * Take input from the user
      * <br>
@@ -187,6 +325,7 @@ public class Engine implements Runnable {
      * This method updates the game.
      */
     protected void update(float interval) {
+        gameLogic.storePreviousState();
         gameLogic.update(interval, input);
     }
 
@@ -196,9 +335,22 @@ public class Engine implements Runnable {
      * This method renders the display to the window
      * and then updates the window to implement 
      * double-buffering.
+     * @param alpha how far rendering is past the last update tick, from 0 to 1
+     */
+    protected void render(float alpha) {
+        gameLogic.render(window, alpha);
+        window.update();
+    }
+    
+    /**
+     * Render a snapshot to the display
+     * <br>
+     * Used instead of {@link #render(float)} with threaded updates.
+     * @param snapshot the latest published snapshot
+     * @param alpha how far rendering is past the snapshot's tick
      */
-    protected void render() {
-        gameLogic.render(window);
+    protected void render(SceneSnapshot snapshot, float alpha) {
+        gameLogic.render(window, snapshot, alpha);
         window.update();
     }
 }
@@ -0,0 +1,244 @@
+package com.axiom.engine;
+
+/**
+ * Decides how many fixed update steps each frame runs
+ * <p>
+ * <br>
+ * Elapsed time is added to an accumulator and paid out in
+ * steps of one interval. If updates take longer than the
+ * interval, the backlog grows faster than it is paid and the
+ * game would spend all its time catching up. To prevent that,
+ * a frame never runs more than {@link #getMaxSubSteps()} steps,
+ * and the {@link OverflowPolicy} decides what happens to the
+ * rest.
+ * <br>
+ * Counters for steps run, dropped and late, and frames that
+ * hit the cap, are kept until {@link #resetCounters()}. They
+ * and the settings can be read and changed from any thread;
+ * {@link #advance(float)} and {@link #stepDone(long)} belong
+ * to the thread that runs the updates.
+ * <br>
+ * Example usage:
+ * <pre>
+ * int steps = timestep.advance(timer.getElapsedTime());
+ * for (int i = 0; i &lt; steps; i++) {
+ *     long start = System.nanoTime();
+ *     game.update(timestep.getInterval(), input);
+ *     timestep.stepDone(System.nanoTime() - start);
+ * }
+ * </pre>
+ * </p>
+ */
+public class FixedTimestep {
+
+    /**
+     * What to do with steps beyond the cap
+     */
+    public enum OverflowPolicy {
+        /** Throw the extra time away; the simulation falls behind at once */
+        DROP,
+        /** Slow simulation time down until the steps fit, then speed it up again */
+        DILATE,
+        /** Keep up to a second of backlog to catch up on later, and print a warning */
+        WARN
+    }
+
+    public static final int DEFAULT_MAX_SUB_STEPS = 5;
+    public static final float MIN_TIME_SCALE = 0.1f;
+    // How much of the normal speed dilated time regains per frame with steps to spare
+    private static final float TIME_SCALE_RECOVERY = 0.02f;
+    private static final long WARNING_PERIOD_NANOS = 1000000000L;
+
+    private final float interval;
+    private final long intervalNanos;
+    private final int maxBacklogSteps;
+    private volatile int maxSubSteps;
+    private volatile OverflowPolicy overflowPolicy;
+
+    private float accumulator;
+    private volatile float timeScale;
+    private long lastWarning;
+
+    private volatile long steps;
+    private volatile long droppedSteps;
+    private volatile long lateSteps;
+    private volatile long overloadedFrames;
+
+    /**
+     * Construct a timestep
+     * @param updatesPerSecond steps per second of simulation time
+     */
+    public FixedTimestep(int updatesPerSecond) {
+        if (updatesPerSecond <= 0) {
+            throw new IllegalArgumentException("Updates per second must be positive: " + updatesPerSecond);
+        }
+        interval = 1f / updatesPerSecond;
+        intervalNanos = 1000000000L / updatesPerSecond;
+        maxBacklogSteps = updatesPerSecond;
+        maxSubSteps = DEFAULT_MAX_SUB_STEPS;
+        overflowPolicy = OverflowPolicy.DROP;
+        timeScale = 1;
+    }
+
+    /**
+     * Add a frame's elapsed time and get the steps to run
+     * @param elapsed real seconds since the last call
+     * @return how many steps to run now, at most the cap
+     */
+    public int advance(float elapsed) {
+        OverflowPolicy policy = overflowPolicy;
+        int cap = maxSubSteps;
+        float scale = policy == OverflowPolicy.DILATE ? timeScale : 1;
+        accumulator += elapsed * scale;
+        int due = (int) (accumulator / interval);
+        if (due <= cap) {
+            if (policy == OverflowPolicy.DILATE && due < cap && scale < 1) {
+                timeScale = Math.min(1, scale + TIME_SCALE_RECOVERY);
+            } else if (policy != OverflowPolicy.DILATE) {
+                timeScale = 1;
+            }
+            return pay(due);
+        }
+
+        overloadedFrames++;
+        int overflow = due - cap;
+        switch (policy) {
+            case DILATE:
+                // Slow down by as much as was missing, and drop what still does not fit
+                timeScale = Math.max(MIN_TIME_SCALE, scale * cap / due);
+                drop(overflow);
+                break;
+            case WARN:
+                if (overflow > maxBacklogSteps) {
+                    drop(overflow - maxBacklogSteps);
+                }
+                long now = System.nanoTime();
+                if (lastWarning == 0 || now - lastWarning >= WARNING_PERIOD_NANOS) {
+                    System.out.println("Warning: updates are " + (due - cap) + " steps behind, running "
+                            + cap + " per frame (" + droppedSteps + " dropped so far)");
+                    lastWarning = now;
+                }
+                break;
+            default:
+                drop(overflow);
+                break;
+        }
+        return pay(cap);
+    }
+
+    private int pay(int count) {
+        accumulator -= count * interval;
+        steps += count;
+        return count;
+    }
+
+    private void drop(int count) {
+        accumulator -= count * interval;
+        droppedSteps += count;
+    }
+
+    /**
+     * Report how long a step took
+     * @param nanos the step's duration
+     */
+    public void stepDone(long nanos) {
+        if (nanos > intervalNanos) {
+            lateSteps++;
+        }
+    }
+
+    /**
+     * Get how far the accumulator is into the next step
+     * @return the leftover fraction of a step, from 0 to 1
+     */
+    public float getAlpha() {
+        return Math.min(1f, accumulator / interval);
+    }
+
+    /**
+     * Get the step length
+     * @return seconds of simulation time per step
+     */
+    public float getInterval() {
+        return interval;
+    }
+
+    public int getMaxSubSteps() {
+        return maxSubSteps;
+    }
+
+    /**
+     * Set the most steps a frame may run
+     * @param maxSubSteps the cap, at least 1
+     */
+    public void setMaxSubSteps(int maxSubSteps) {
+        if (maxSubSteps < 1) {
+            throw new IllegalArgumentException("Max sub steps must be at least 1: " + maxSubSteps);
+        }
+        this.maxSubSteps = maxSubSteps;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("Overflow policy must not be null");
+        }
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Get how fast simulation time runs
+     * @return 1 normally, less while {@link OverflowPolicy#DILATE} slows it down
+     */
+    public float getTimeScale() {
+        return timeScale;
+    }
+
+    /**
+     * Get the number of steps run since the last reset
+     * @return step count
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Get the number of steps thrown away since the last reset
+     * @return dropped step count
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    /**
+     * Get the number of steps that took longer than an interval since the last reset
+     * @return late step count
+     */
+    public long getLateSteps() {
+        return lateSteps;
+    }
+
+    /**
+     * Get the number of frames that hit the step cap since the last reset
+     * @return overloaded frame count
+     */
+    public long getOverloadedFrames() {
+        return overloadedFrames;
+    }
+
+    public void resetCounters() {
+        steps = 0;
+        droppedSteps = 0;
+        lateSteps = 0;
+        overloadedFrames = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d steps, %d late, %d dropped, %d overloaded frames, time scale %.2f",
+                steps, lateSteps, droppedSteps, overloadedFrames, timeScale);
+    }
+}
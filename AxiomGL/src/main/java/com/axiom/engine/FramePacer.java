@@ -0,0 +1,246 @@
+package com.axiom.engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Holds the render loop to a target frame rate
+ * <p>
+ * <br>
+ * Each frame has a deadline one slot after the previous one.
+ * {@link #pace()} parks the thread until shortly before the
+ * deadline, then spins the rest of the way, since parking
+ * alone wakes up late by a varying amount. A longer spin
+ * window is more accurate and burns more CPU; a window of 0
+ * never spins. When a frame runs late the deadlines restart
+ * from now instead of rushing to catch up.
+ * <br>
+ * Frame times, measured from one {@link #pace()} or
+ * {@link #markFrame()} to the next on System.nanoTime(), are
+ * kept for the last {@link #WINDOW} frames. Their mean and
+ * standard deviation (the jitter) and how late each frame
+ * started are available for logging.
+ * <br>
+ * Settings may be changed from any thread; pacing and the
+ * statistics belong to the render thread. {@link #waitUntil(long)}
+ * may be used from any thread.
+ * <br>
+ * Example usage:
+ * <pre>
+ * FramePacer pacer = engine.getFramePacer();
+ * pacer.setTargetFps(144);
+ * pacer.setSpinNanos(200000);
+ * System.out.println(pacer.getJitterNanos() / 1e6 + " ms jitter");
+ * </pre>
+ * </p>
+ */
+public class FramePacer {
+
+    public static final int WINDOW = 128;
+    public static final long DEFAULT_SPIN_NANOS = 1000000L;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private volatile long slotNanos;
+    private volatile long spinNanos;
+
+    private long deadline;
+    private long lastFrame;
+    private boolean started;
+
+    // Ring of recent frame times, and how late each wakeup was
+    private final long[] frameTimes;
+    private final long[] lateness;
+    private int next;
+    private int count;
+
+    /**
+     * Construct a pacer
+     * @param targetFps frames per second to hold, 0 for no limit
+     */
+    public FramePacer(int targetFps) {
+        frameTimes = new long[WINDOW];
+        lateness = new long[WINDOW];
+        setTargetFps(targetFps);
+        spinNanos = DEFAULT_SPIN_NANOS;
+    }
+
+    /**
+     * Get the target frame rate
+     * @return frames per second, 0 if unlimited
+     */
+    public int getTargetFps() {
+        long slot = slotNanos;
+        return slot == 0 ? 0 : (int) Math.round((double) NANOS_PER_SECOND / slot);
+    }
+
+    /**
+     * Set the target frame rate
+     * @param targetFps frames per second, 0 for no limit
+     */
+    public void setTargetFps(int targetFps) {
+        if (targetFps < 0) {
+            throw new IllegalArgumentException("Target fps must not be negative: " + targetFps);
+        }
+        slotNanos = targetFps == 0 ? 0 : NANOS_PER_SECOND / targetFps;
+    }
+
+    public long getSpinNanos() {
+        return spinNanos;
+    }
+
+    /**
+     * Set how long before the deadline parking stops and spinning starts
+     * @param spinNanos the spin window, 0 to never spin
+     */
+    public void setSpinNanos(long spinNanos) {
+        if (spinNanos < 0) {
+            throw new IllegalArgumentException("Spin window must not be negative: " + spinNanos);
+        }
+        this.spinNanos = spinNanos;
+    }
+
+    /**
+     * Wait for the end of the current frame's slot, then start the next
+     */
+    public void pace() {
+        long slot = slotNanos;
+        long now = System.nanoTime();
+        if (slot == 0 || !started) {
+            deadline = now;
+            record(now, 0);
+            return;
+        }
+        long target = deadline + slot;
+        if (target - now <= 0) {
+            // Too late already; start over from now rather than rushing the next frames
+            deadline = now;
+            record(now, now - target);
+            return;
+        }
+
+        now = waitUntil(target);
+        deadline = target;
+        record(now, now - target);
+    }
+
+    /**
+     * Park, then spin, until a deadline
+     * <br>
+     * Uses the spin window but no other state, so any
+     * thread may call it, e.g. to wait for the next update.
+     * @param target the deadline, on System.nanoTime()
+     * @return the time the wait ended
+     */
+    public long waitUntil(long target) {
+        long spin = spinNanos;
+        long remaining;
+        while ((remaining = target - System.nanoTime()) > spin) {
+            LockSupport.parkNanos(remaining - spin);
+        }
+        long now;
+        while ((now = System.nanoTime()) - target < 0) {
+            // spin
+        }
+        return now;
+    }
+
+    /**
+     * Start the next frame without waiting
+     * <br>
+     * For frames paced by something else, like vsync,
+     * that should still show up in the statistics.
+     */
+    public void markFrame() {
+        long now = System.nanoTime();
+        deadline = now;
+        record(now, 0);
+    }
+
+    private void record(long now, long late) {
+        if (started) {
+            frameTimes[next] = now - lastFrame;
+            lateness[next] = late;
+            next = (next + 1) % WINDOW;
+            if (count < WINDOW) {
+                count++;
+            }
+        }
+        lastFrame = now;
+        started = true;
+    }
+
+    /**
+     * Get the number of frames the statistics cover
+     * @return frames, at most {@link #WINDOW}
+     */
+    public int getSampleCount() {
+        return count;
+    }
+
+    /**
+     * Get the last frame's duration
+     * @return nanoseconds, 0 before the second frame
+     */
+    public long getLastFrameNanos() {
+        return count == 0 ? 0 : frameTimes[(next + WINDOW - 1) % WINDOW];
+    }
+
+    /**
+     * Get the mean frame duration over the window
+     * @return nanoseconds
+     */
+    public double getMeanFrameNanos() {
+        if (count == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += frameTimes[i];
+        }
+        return (double) total / count;
+    }
+
+    /**
+     * Get the frame time jitter over the window
+     * @return standard deviation of the frame durations, in nanoseconds
+     */
+    public double getJitterNanos() {
+        if (count < 2) {
+            return 0;
+        }
+        double mean = getMeanFrameNanos();
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            double d = frameTimes[i] - mean;
+            sum += d * d;
+        }
+        return Math.sqrt(sum / count);
+    }
+
+    /**
+     * Get the latest frame start over the window
+     * @return how far past its deadline a paced frame started, in nanoseconds
+     */
+    public long getMaxLatenessNanos() {
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, lateness[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Forget the recorded frames
+     */
+    public void resetStats() {
+        next = 0;
+        count = 0;
+        started = false;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.2f ms/frame, %.3f ms jitter, %.3f ms worst lateness over %d frames",
+                getMeanFrameNanos() / 1e6, getJitterNanos() / 1e6, getMaxLatenessNanos() / 1e6, count);
+    }
+}
@@ -0,0 +1,215 @@
+package com.axiom.engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+import com.axiom.engine.input.InputHandler;
+import com.axiom.engine.math.FrameScratch;
+
+/**
+ * Runs a game's simulation without a window
+ * <p>
+ * <br>
+ * No GLFW window or GL context is created. The game is set
+ * up with {@link IHeadlessGame#initHeadless()}, then input and
+ * update run in a loop on the HEADLESS_LOOP_THREAD, for a
+ * dedicated server or for benchmarks in CI. Input gets a
+ * null window and an InputHandler with no keys down.
+ * <br>
+ * At a positive ups the loop keeps real time with a
+ * {@link FixedTimestep}, parking between ticks. At 0 ups it
+ * runs ticks back to back as fast as the CPU allows; each
+ * tick still advances the simulation by 1 / {@link Engine#TARGET_UPS}.
+ * <br>
+ * Ticks per second are measured over each second and over
+ * the whole run, and printed when the loop ends.
+ * <br>
+ * Example usage:
+ * <pre>
+ * HeadlessEngine server = new HeadlessEngine(new Game(), 0);
+ * server.setMaxTicks(100000);
+ * server.run();
+ * System.out.println(server.getAverageTicksPerSecond());
+ * </pre>
+ * </p>
+ */
+public class HeadlessEngine implements Runnable {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final IHeadlessGame gameLogic;
+    private final InputHandler input;
+    private final int updatesPerSecond;
+    private final FixedTimestep timestep;
+    private Thread loopThread;
+    private volatile boolean running;
+    private volatile long maxTicks;
+
+    private volatile long ticks;
+    private volatile double ticksPerSecond;
+    private long startTime;
+    private volatile long runNanos;
+
+    /**
+     * Construct a headless engine
+     * @param gameLogic the game to run
+     * @param updatesPerSecond ticks per second of real time, 0 to run as fast as possible
+     */
+    public HeadlessEngine(IHeadlessGame gameLogic, int updatesPerSecond) {
+        if (updatesPerSecond < 0) {
+            throw new IllegalArgumentException("Updates per second must not be negative: " + updatesPerSecond);
+        }
+        this.gameLogic = gameLogic;
+        this.updatesPerSecond = updatesPerSecond;
+        input = new InputHandler();
+        timestep = new FixedTimestep(updatesPerSecond > 0 ? updatesPerSecond : Engine.TARGET_UPS);
+    }
+
+    /**
+     * Start the loop on its own thread
+     */
+    public void start() {
+        loopThread = new Thread(this, "HEADLESS_LOOP_THREAD");
+        loopThread.start();
+    }
+
+    /**
+     * Ask the loop to end after the current tick
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Wait for a loop started with {@link #start()} to end
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void join() throws InterruptedException {
+        if (loopThread != null) {
+            loopThread.join();
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+        try {
+            gameLogic.initHeadless();
+            gameLoop();
+        } catch (Exception excp) {
+            excp.printStackTrace();
+        }
+    }
+
+    /**
+     * Run ticks until stopped or {@link #getMaxTicks()} is reached
+     */
+    protected void gameLoop() {
+        running = true;
+        ticks = 0;
+        startTime = System.nanoTime();
+        long secondStart = startTime;
+        long secondTicks = 0;
+        long lastTime = startTime;
+        float interval = timestep.getInterval();
+
+        while (running && (maxTicks == 0 || ticks < maxTicks)) {
+            long now = System.nanoTime();
+            int steps;
+            if (updatesPerSecond > 0) {
+                steps = timestep.advance((now - lastTime) / (float) NANOS_PER_SECOND);
+                lastTime = now;
+                if (steps == 0) {
+                    // Park until the next tick is due
+                    LockSupport.parkNanos((long) ((1 - timestep.getAlpha()) * interval * NANOS_PER_SECOND));
+                    continue;
+                }
+            } else {
+                steps = 1;
+            }
+            long limit = maxTicks;
+            if (limit > 0 && ticks + steps > limit) {
+                steps = (int) (limit - ticks);
+            }
+
+            gameLogic.input(null, input);
+            for (int i = 0; i < steps; i++) {
+                long start = System.nanoTime();
+                gameLogic.update(interval, input);
+                timestep.stepDone(System.nanoTime() - start);
+            }
+            FrameScratch.current().reset();
+            ticks += steps;
+            secondTicks += steps;
+
+            now = System.nanoTime();
+            if (now - secondStart >= NANOS_PER_SECOND) {
+                ticksPerSecond = secondTicks * (double) NANOS_PER_SECOND / (now - secondStart);
+                secondStart = now;
+                secondTicks = 0;
+            }
+        }
+        runNanos = System.nanoTime() - startTime;
+        running = false;
+        System.out.println(String.format("Ran %d ticks in %.2f s, %.1f ticks/s", ticks, runNanos / 1e9,
+                getAverageTicksPerSecond()));
+    }
+
+    /**
+     * Get the tick limit
+     * @return ticks to run before stopping, 0 for no limit
+     */
+    public long getMaxTicks() {
+        return maxTicks;
+    }
+
+    /**
+     * Stop the loop after a number of ticks
+     * @param maxTicks ticks to run, 0 for no limit
+     */
+    public void setMaxTicks(long maxTicks) {
+        if (maxTicks < 0) {
+            throw new IllegalArgumentException("Max ticks must not be negative: " + maxTicks);
+        }
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Get the fixed timestep pacing the loop at a positive ups
+     * @return the timestep
+     */
+    public FixedTimestep getFixedTimestep() {
+        return timestep;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Get the number of ticks run
+     * @return ticks since the loop started
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Get the tick rate over the last whole second
+     * @return ticks per second, 0 during the first second
+     */
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * Get the tick rate over the whole run
+     * @return ticks per second since the loop started
+     */
+    public double getAverageTicksPerSecond() {
+        long nanos = running ? System.nanoTime() - startTime : runNanos;
+        return nanos <= 0 ? 0 : ticks * (double) NANOS_PER_SECOND / nanos;
+    }
+}
@@ -5,6 +5,17 @@
  * This interface should be implemented by
  * the client so that the Engine can interface
  * with it.
+ * <br>
+ * With {@link Engine#setThreadedUpdate(boolean)} updates run
+ * on their own thread while input and rendering stay on the
+ * GL thread. A game that supports this copies its renderable
+ * state in {@link #snapshot(SceneSnapshot)} and draws it in
+ * {@link #render(Window, SceneSnapshot, float)}, never reading the
+ * objects update changes from the render side. What input
+ * hands to update crosses threads too: latch it into an
+ * immutable object published through one volatile field,
+ * and have update read only that, never the InputHandler,
+ * which the GL thread keeps changing.
  * </p>
  * <p>
  * @author Antonio Hernández Bejarano (@lwjglgamedev)
@@ -29,6 +40,31 @@ public interface IGame {
      */
 	void render(Window window);
 	
+    /**
+     * Render the game between two update ticks
+     * <br>
+     * Called by the Engine instead of {@link #render(Window)}.
+     * Pass alpha on to the Renderer so it draws items and the
+     * camera part way from their previous to their current
+     * transforms. The default ignores alpha.
+     * @param window the window to render to
+     * @param alpha how far rendering is past the last tick, from 0 to 1
+     */
+    default void render(Window window, float alpha) {
+        render(window);
+    }
+    
+    /**
+     * Remember the state the next update starts from
+     * <br>
+     * Called before every update tick. Store the previous
+     * transforms of whatever {@link #render(Window, float)}
+     * interpolates, see {@link Scene#storePreviousTransforms()}
+     * and {@link com.axiom.engine.math.Camera#storePreviousTransform()}.
+     */
+    default void storePreviousState() {
+    }
+	
     @Deprecated
     /**
      * Clean up the game
@@ -50,4 +86,30 @@ public interface IGame {
      * @param keyboardInput the keyboard input
 	 */
     void input(Window window, InputHandler keyboardInput);
+
+    /**
+     * Copy the renderable state into a snapshot
+     * <br>
+     * Called on the update thread after each round of
+     * updates, and once on the GL thread before the update
+     * thread starts. Only used with threaded updates.
+     * @param snapshot the snapshot to fill, see {@link SceneSnapshot#capture}
+     */
+    default void snapshot(SceneSnapshot snapshot) {
+    }
+
+    /**
+     * Render the game from a snapshot
+     * <br>
+     * Called on the GL thread instead of {@link #render(Window, float)}
+     * when updates run on their own thread. The default just
+     * renders the live state, which is only safe if update
+     * changes nothing that rendering reads.
+     * @param window the window to render to
+     * @param snapshot the latest published snapshot
+     * @param alpha how far rendering is past the snapshot's tick, from 0 to 1
+     */
+    default void render(Window window, SceneSnapshot snapshot, float alpha) {
+        render(window, alpha);
+    }
 }
@@ -0,0 +1,25 @@
+package com.axiom.engine;
+
+/**
+ * A Game that can also run without a window
+ * <p>
+ * <br>
+ * Games implement this to be run by a {@link HeadlessEngine},
+ * e.g. as a dedicated server or for benchmarks in CI. Only
+ * games that set themselves up without GL can run headless,
+ * so plain {@link IGame}s are not accepted there.
+ * </p>
+ */
+public interface IHeadlessGame extends IGame {
+
+    /**
+     * Initialize the game without a window or GL context
+     * <br>
+     * Called by {@link HeadlessEngine} instead of
+     * {@link #init(Window)}. Set up only what update needs;
+     * afterwards input is called with a null window and
+     * render is never called.
+     * @throws Exception if files are not found
+     */
+    void initHeadless() throws Exception;
+}
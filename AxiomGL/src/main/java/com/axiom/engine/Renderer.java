@@ -20,39 +20,100 @@ package com.axiom.engine;
 import static org.lwjgl.opengl.GL11.GL_COLOR_BUFFER_BIT;
 import static org.lwjgl.opengl.GL11.GL_DEPTH_BUFFER_BIT;
 import static org.lwjgl.opengl.GL11.glClear;
-import static org.lwjgl.opengl.GL11.glViewport;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joml.FrustumIntersection;
 import org.joml.Matrix4f;
-import org.joml.Vector3f;
-import org.joml.Vector4f;
 
 import com.axiom.engine.hud.IHud;
 import com.axiom.engine.item.Item;
 import com.axiom.engine.item.SkyBox;
-import com.axiom.engine.item.light.Light;
+import com.axiom.engine.item.model.Material;
 import com.axiom.engine.item.model.Mesh;
+import com.axiom.engine.item.model.MeshGeometry;
+import com.axiom.engine.item.model.Texture;
+import com.axiom.engine.loaders.ProgramCache;
 import com.axiom.engine.loaders.ShaderReader;
+import com.axiom.engine.math.BoundingBox;
 import com.axiom.engine.math.Transformation;
 import com.axiom.engine.math.Camera;
+import com.axiom.engine.render.FrameUniforms;
+import com.axiom.engine.render.GLStateCache;
+import com.axiom.engine.render.GpuTimer;
+import com.axiom.engine.render.HudBatch;
+import com.axiom.engine.render.RenderQueue;
+import com.axiom.engine.render.RenderStats;
 
 public class Renderer {
     private static final float FOV = (float) Math.toRadians(60.0f);
     private static final float Z_NEAR = 0.01f;
     private static final float Z_FAR = 1000.f;
     
+    // Scene shader variants are indexed by these flags, bit i defining SCENE_DEFINES[i]
+    private static final int FLAT_SHADING = 1;
+    private static final int HAS_NORMAL_MAP = 2;
+    private static final int HAS_SPECULAR_MAP = 4;
+    private static final String[] SCENE_DEFINES = { "FLAT_SHADING", "HAS_NORMAL_MAP", "HAS_SPECULAR_MAP" };
+    
     private final Transformation transformation;
     
-    private ShaderReader sceneShaderProgram;
+    // Built on first use, so only the variants the scene needs are compiled
+    private final ShaderReader[] sceneShaderPrograms;
     private ShaderReader hudShaderProgram;
 	private ShaderReader skyBoxShaderProgram;
 	
+    // Shared per-frame block: projection, view, ortho, camera and light
+    private FrameUniforms frameUniforms;
+	
+    // Uniform slots, resolved once when the shaders are set up
+    private int sceneModelViewUniform;
+    private int sceneInstancedUniform;
+    private ShaderReader.MaterialUniform sceneMaterialUniform;
+    private int hudHasTextureUniform;
+    private int skyBoxModelUniform;
+    private int skyBoxTextureUniform;
+	
     private Window window;
     
+    private boolean instancedRendering;
+    
+    private final Matrix4f projectionViewMatrix;
+    private final FrustumIntersection frustum;
+    private final RenderQueue renderQueue;
+    private final List<Item> instanceItems;
+    private HudBatch hudBatch;
+    private GpuTimer gpuTimer;
+    // The camera as drawn this frame, between its previous and current state
+    private final Camera renderCamera;
+    private float alpha;
+    private final RenderStats stats;
+    private long frameCount;
+    // Counter values when the current pass began
+    private long passDrawCalls;
+    private long passTriangles;
+    private long passStateChanges;
+    private long passUniformUploads;
+    private boolean frustumCulling;
+    private int drawnItems;
+    private int culledItems;
+    
     /**
      * Construct a default Renderer
      */
     public Renderer() {
         transformation = Transformation.getInstance();
+        sceneShaderPrograms = new ShaderReader[1 << SCENE_DEFINES.length];
+        instancedRendering = true;
+        projectionViewMatrix = new Matrix4f();
+        frustum = new FrustumIntersection();
+        renderQueue = new RenderQueue(Z_NEAR, Z_FAR);
+        instanceItems = new ArrayList<>();
+        frustumCulling = true;
+        stats = new RenderStats();
+        renderCamera = new Camera();
+        alpha = 1;
     }
 
     /**
@@ -61,30 +122,76 @@ public class Renderer {
      * @throws Exception if files aren't found
      */
     public void init(Window window) throws Exception {
+        frameUniforms = new FrameUniforms();
+        long start = System.nanoTime();
     		setupSkyBoxShader();
-        setupSceneShader();
+        // The plainest variant is built up front so a broken shader fails here
+        setupSceneShader(0);
         setupHudShader();
+        hudBatch = new HudBatch();
+        gpuTimer = new GpuTimer(RenderStats.Pass.values().length);
+        int cached = (skyBoxShaderProgram.isFromCache() ? 1 : 0) + (sceneShaderPrograms[0].isFromCache() ? 1 : 0)
+                + (hudShaderProgram.isFromCache() ? 1 : 0);
+        System.out.println(String.format("Shaders ready in %.1f ms, %d of 3 from the program cache%s",
+                (System.nanoTime() - start) / 1e6, cached, ProgramCache.isEnabled() ? "" : " (disabled)"));
         this.window = window;
     }
     
     /**
-     * Set up the scene shader
+     * Set up a variant of the scene shader
+     * @param variant the variant's flags
+     * @return the linked program
      */
-    private void setupSceneShader() throws Exception {
+    private ShaderReader setupSceneShader(int variant) throws Exception {
         // Create shader
-    		sceneShaderProgram = new ShaderReader();
-    		sceneShaderProgram.createVertexShader(Utils.loadResource("/shaders/phong.vs"));
-    		sceneShaderProgram.createFragmentShader(Utils.loadResource("/shaders/phong.fs"));
-    		sceneShaderProgram.link();
+    		ShaderReader program = new ShaderReader();
+    		for (int i = 0; i < SCENE_DEFINES.length; i++) {
+    			if ((variant & (1 << i)) != 0) {
+    				program.addDefine(SCENE_DEFINES[i]);
+    			}
+    		}
+    		program.createVertexShader(Utils.loadResource("/shaders/phong.vs"));
+    		program.createFragmentShader(Utils.loadResource("/shaders/phong.fs"));
+    		program.link();
+    		program.bindUniformBlock(FrameUniforms.BLOCK_NAME, FrameUniforms.BINDING);
         
-        // Create uniforms for modelView and projection matrices and texture
-    		sceneShaderProgram.createUniform("projection");
-        sceneShaderProgram.createUniform("modelViewMatrix");
-        sceneShaderProgram.createMaterialUniform();
-        sceneShaderProgram.createUniform("flatShading");
-        sceneShaderProgram.createLightUniform("light");
+        // Create uniforms for modelView matrix and texture; every variant
+        // creates them in the same order, so the slots are the same in all
+        sceneModelViewUniform = program.createUniform("modelViewMatrix");
+        sceneInstancedUniform = program.createUniform("isInstanced");
+        sceneMaterialUniform = program.createMaterialUniform();
         
-        //this.window = window;
+        sceneShaderPrograms[variant] = program;
+        return program;
+    }
+    
+    /**
+     * Get the cheapest scene shader variant that can draw a material
+     * @param material the material to draw
+     * @return the variant, built now if this is its first use
+     */
+    private ShaderReader getSceneShader(Material material) {
+        int variant = getSceneVariant(material);
+        ShaderReader program = sceneShaderPrograms[variant];
+        if (program == null) {
+            try {
+                program = setupSceneShader(variant);
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not build scene shader variant " + variant, e);
+            }
+        }
+        return program;
+    }
+
+    /**
+     * Get the scene shader variant a material needs
+     * @param material the material to draw
+     * @return the variant's flags
+     */
+    private static int getSceneVariant(Material material) {
+        return (material.isFlatShading() ? FLAT_SHADING : 0)
+                | (material.hasNormalMap() ? HAS_NORMAL_MAP : 0)
+                | (material.hasSpecularMap() ? HAS_SPECULAR_MAP : 0);
     }
 
     /**
@@ -95,11 +202,10 @@ public class Renderer {
         hudShaderProgram.createVertexShader(Utils.loadResource("/shaders/hud_vertex.vs"));
         hudShaderProgram.createFragmentShader(Utils.loadResource("/shaders/hud_frag.fs"));
         hudShaderProgram.link();
+        hudShaderProgram.bindUniformBlock(FrameUniforms.BLOCK_NAME, FrameUniforms.BINDING);
 
-        // Create uniforms for Ortographic-model projection matrix and base colour
-        hudShaderProgram.createUniform("projModelMatrix");
-        hudShaderProgram.createUniform("colour");
-        hudShaderProgram.createUniform("hasTexture");
+        // Positions arrive in pixels and colours per vertex, from the HudBatch
+        hudHasTextureUniform = hudShaderProgram.createUniform("hasTexture");
     }
     
     /**
@@ -110,11 +216,10 @@ public class Renderer {
         skyBoxShaderProgram.createVertexShader(Utils.loadResource("/shaders/skybox_vertex.vs"));
         skyBoxShaderProgram.createFragmentShader(Utils.loadResource("/shaders/skybox_frag.fs"));
         skyBoxShaderProgram.link();
+        skyBoxShaderProgram.bindUniformBlock(FrameUniforms.BLOCK_NAME, FrameUniforms.BINDING);
 
-        skyBoxShaderProgram.createUniform("projectionMatrix");
-        skyBoxShaderProgram.createUniform("modelViewMatrix");
-        skyBoxShaderProgram.createUniform("texture_sampler");
-        skyBoxShaderProgram.createUniform("ambientLight");
+        skyBoxModelUniform = skyBoxShaderProgram.createUniform("modelMatrix");
+        skyBoxTextureUniform = skyBoxShaderProgram.createUniform("texture_sampler");
     }
     
     /**
@@ -132,17 +237,126 @@ public class Renderer {
      * @param hud the hud to render
      */
     public void render(Window window, Camera camera, Scene scene, IHud hud) {
+        render(window, camera, scene, hud, 1);
+    }
+
+    /**
+     * Render the given variables to the screen between two update ticks
+     * <br>
+     * The camera and every moving item are drawn alpha of the
+     * way from their previous to their current transform, so
+     * motion stays smooth when frames outnumber ticks.
+     * @param window the window to render to
+     * @param camera the camera to render from
+     * @param scene the scene to render
+     * @param hud the hud to render
+     * @param alpha how far rendering is past the last tick, from 0 to 1
+     */
+    public void render(Window window, Camera camera, Scene scene, IHud hud, float alpha) {
+        // Count issued and skipped GL calls and uniform uploads per frame
+        GLStateCache.getInstance().resetCounters();
+        for (ShaderReader program : sceneShaderPrograms) {
+            if (program != null) {
+                program.resetCounters();
+            }
+        }
+        hudShaderProgram.resetCounters();
+        skyBoxShaderProgram.resetCounters();
         clear();
 
         if ( window.isResized() ) {
-            glViewport(0, 0, window.getWidth(), window.getHeight());
+            GLStateCache.getInstance().viewport(0, 0, window.getWidth(), window.getHeight());
             window.setResized(false);
         }
-        transformation.updateProjectionMatrix(FOV, window.getWidth(), window.getHeight(), Z_NEAR, Z_FAR);
-        transformation.updateViewMatrix(camera);
-        renderScene(window, camera, scene);
+        camera = prepareScene(camera, scene, alpha, window.getWidth(), window.getHeight());
+        frameUniforms.update(transformation.getProjectionMatrix(), transformation.getViewMatrix(),
+                transformation.getOrthoProjectionMatrix(0, window.getWidth(), window.getHeight(), 0),
+                camera.getPosition(), scene.getSceneLight());
+        gpuTimer.beginFrame(stats);
+        stats.setFrame(frameCount++);
+        beginPass(RenderStats.Pass.SCENE);
+        drawQueue(transformation.getViewMatrix());
+        endPass(RenderStats.Pass.SCENE);
+        beginPass(RenderStats.Pass.SKYBOX);
         renderSkyBox(window, camera, scene); //skybox needs to be rendered after scene
+        endPass(RenderStats.Pass.SKYBOX);
+        beginPass(RenderStats.Pass.HUD);
         renderHud(window, hud); //hud needs to be rendered after skybox
+        endPass(RenderStats.Pass.HUD);
+    }
+    
+    /**
+     * Do the CPU half of a frame
+     * <br>
+     * Blends the camera, updates the projection, view and
+     * frustum, then culls and queues the scene for drawing.
+     * Nothing here touches GL, so it also runs without a
+     * window, e.g. to check that frames do not allocate.
+     * @param camera the camera to render from
+     * @param scene the scene to render
+     * @param alpha how far rendering is past the last tick, from 0 to 1
+     * @param width the viewport width
+     * @param height the viewport height
+     * @return the camera as drawn this frame, owned by the renderer
+     */
+    public Camera prepareScene(Camera camera, Scene scene, float alpha, int width, int height) {
+        this.alpha = alpha;
+        Camera drawnCamera = camera.interpolate(alpha, renderCamera);
+        transformation.updateProjectionMatrix(FOV, width, height, Z_NEAR, Z_FAR);
+        transformation.updateViewMatrix(drawnCamera);
+        updateFrustum();
+        drawnItems = 0;
+        culledItems = 0;
+        queueScene(scene, transformation.getViewMatrix());
+        return drawnCamera;
+    }
+    
+    /**
+     * Start timing a pass and note where the counters stand
+     * @param pass the pass about to be drawn
+     */
+    private void beginPass(RenderStats.Pass pass) {
+        GLStateCache glState = GLStateCache.getInstance();
+        passDrawCalls = glState.getDrawCalls();
+        passTriangles = glState.getTriangles();
+        passStateChanges = glState.getIssuedCalls();
+        passUniformUploads = getIssuedUniformUploads();
+        gpuTimer.begin(pass);
+    }
+    
+    /**
+     * Stop timing a pass and record what it submitted
+     * @param pass the pass just drawn
+     */
+    private void endPass(RenderStats.Pass pass) {
+        gpuTimer.end();
+        GLStateCache glState = GLStateCache.getInstance();
+        stats.setCounts(pass, glState.getDrawCalls() - passDrawCalls, glState.getTriangles() - passTriangles,
+                glState.getIssuedCalls() - passStateChanges, getIssuedUniformUploads() - passUniformUploads);
+    }
+    
+    /**
+     * Extract the frustum planes from this frame's projection and view
+     */
+    private void updateFrustum() {
+        projectionViewMatrix.set(transformation.getProjectionMatrix()).mul(transformation.getViewMatrix());
+        frustum.set(projectionViewMatrix);
+    }
+    
+    /**
+     * Tell if an item can be seen, counting it as drawn or culled
+     * @param bounds the item's bounds as drawn
+     * @return true if it should be drawn
+     */
+    private boolean isVisible(BoundingBox bounds) {
+        if (frustumCulling) {
+            if (!frustum.testAab(bounds.minX, bounds.minY, bounds.minZ, bounds.maxX, bounds.maxY, bounds.maxZ)) {
+                culledItems++;
+                return false;
+            }
+        }
+        drawnItems++;
+        return true;
     }
     
     /**
@@ -152,32 +366,114 @@ public class Renderer {
      * @param scene the scene to render
      */
     public void renderScene(Window window, Camera camera, Scene scene) {
-        sceneShaderProgram.bind();
-        
-        // Update projection Matrix
-        Matrix4f projectionMatrix = transformation.getProjectionMatrix();//FOV, window.getWidth(), window.getHeight(), Z_NEAR, Z_FAR);
-        sceneShaderProgram.setUniform("projection", projectionMatrix);
-
-        // Update view Matrix
-        Matrix4f viewMatrix = transformation.getViewMatrix();//camera);
-        Light currPointLight = new Light(scene.getSceneLight());
-        Vector3f lightPos = currPointLight.getPosition();
-        Vector4f aux = new Vector4f(lightPos, 1);
-        aux.mul(viewMatrix);
-        lightPos.x = aux.x;
-        lightPos.y = aux.y;
-        lightPos.z = aux.z;
-        sceneShaderProgram.setUniform("light", currPointLight);       
-        // Render each gameItem
-        for(Item gameItem : scene.getGameItems()) {
-            Mesh mesh = gameItem.getMesh();
-            // Set model view matrix for this item
-            Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(gameItem, viewMatrix);
-            sceneShaderProgram.setUniform("modelViewMatrix", modelViewMatrix);
-            sceneShaderProgram.setUniform(mesh.getMaterial());
-            mesh.render();
+        // Projection and light come from the frame uniform block
+        Matrix4f viewMatrix = transformation.getViewMatrix();
+        drawnItems = 0;
+        culledItems = 0;
+        queueScene(scene, viewMatrix);
+        drawQueue(viewMatrix);
+    }
+    
+    /**
+     * Queue the visible scene items, sorted for drawing
+     * @param scene the scene to render
+     * @param viewMatrix the current view matrix
+     */
+    private void queueScene(Scene scene, Matrix4f viewMatrix) {
+        renderQueue.clear();
+        for (Item gameItem : scene.getRenderItems()) {
+            // Nothing to draw without a Mesh
+            if (gameItem.getMesh() == null) {
+                continue;
+            }
+            // Cull and sort on the pose that is drawn, not the one at the last tick
+            gameItem.interpolate(alpha);
+            BoundingBox bounds = gameItem.getRenderBounds();
+            if (isVisible(bounds)) {
+                // Depth of the bounds centre, along the camera's view direction
+                float x = (bounds.minX + bounds.maxX) * 0.5f;
+                float y = (bounds.minY + bounds.maxY) * 0.5f;
+                float z = (bounds.minZ + bounds.maxZ) * 0.5f;
+                float viewDepth = -(viewMatrix.m02() * x + viewMatrix.m12() * y + viewMatrix.m22() * z + viewMatrix.m32());
+                // The variant stands for its program, which may not be built yet
+                renderQueue.add(gameItem, getSceneVariant(gameItem.getMesh().getMaterial()), viewDepth);
+            }
         }
-        sceneShaderProgram.unbind();
+        renderQueue.sort();
+    }
+    
+    /**
+     * Draw the sorted queue, binding only the state that changes
+     * <br>
+     * With instanced rendering each run of items sharing a
+     * Mesh is drawn by a single instanced call.
+     * @param viewMatrix the current view matrix
+     */
+    private void drawQueue(Matrix4f viewMatrix) {
+        GLStateCache glState = GLStateCache.getInstance();
+        ShaderReader boundProgram = null;
+        Material boundMaterial = null;
+
+        int size = renderQueue.size();
+        int start = 0;
+        while (start < size) {
+            Item first = renderQueue.get(start);
+            Mesh mesh = first.getMesh();
+            boolean blended = renderQueue.isBlended(start);
+            int end = start + 1;
+            if (instancedRendering) {
+                while (end < size && renderQueue.get(end).getMesh() == mesh && renderQueue.isBlended(end) == blended) {
+                    end++;
+                }
+            }
+
+            // Opaque draws skip blending and blended draws leave depth untouched
+            glState.setBlend(blended);
+            glState.setDepthMask(!blended);
+            Material material = mesh.getMaterial();
+            ShaderReader program = getSceneShader(material);
+            if (program != boundProgram) {
+                // The queue groups draws by program, so this happens once per variant
+                program.bind();
+                program.setUniform(sceneInstancedUniform, instancedRendering ? 1 : 0);
+                boundProgram = program;
+                boundMaterial = null;
+            }
+            if (material != boundMaterial) {
+                program.setUniform(sceneMaterialUniform, material);
+                boundMaterial = material;
+            }
+            Texture texture = material.getTexture();
+            glState.bindTexture(ShaderReader.MaterialUniform.DIFFUSE_UNIT, texture != null ? texture.getId() : 0);
+            if (material.hasNormalMap()) {
+                glState.bindTexture(ShaderReader.MaterialUniform.NORMAL_UNIT, material.getNormalMap().getId());
+            }
+            if (material.hasSpecularMap()) {
+                glState.bindTexture(ShaderReader.MaterialUniform.SPECULAR_UNIT, material.getSpecularMap().getId());
+            }
+
+            MeshGeometry geometry = mesh.getGeometry();
+            if (instancedRendering) {
+                instanceItems.clear();
+                for (int i = start; i < end; i++) {
+                    instanceItems.add(renderQueue.get(i));
+                }
+                int numInstances = geometry.updateInstanceData(instanceItems, transformation, viewMatrix);
+                geometry.bind();
+                geometry.renderInstanced(numInstances);
+            } else {
+                Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(first, viewMatrix);
+                program.setUniform(sceneModelViewUniform, modelViewMatrix);
+                geometry.bind();
+                geometry.render();
+            }
+            start = end;
+        }
+        instanceItems.clear();
+
+        // Restore the defaults the rest of the frame expects
+        glState.setBlend(true);
+        glState.setDepthMask(true);
     }
 
     /**
@@ -188,18 +484,14 @@ public class Renderer {
     private void renderHud(Window window, IHud hud) {
         hudShaderProgram.bind();
 
-        Matrix4f ortho = transformation.getOrthoProjectionMatrix(0, window.getWidth(), window.getHeight(), 0);
+        // The orthographic projection comes from the frame uniform block;
+        // every item is transformed on the CPU and drawn in one draw per texture
+        hudBatch.begin();
         for (Item gameItem : hud.getGameItems()) {
-        		
-            Mesh mesh = gameItem.getMesh();
-            // Set ortohtaphic and model matrix for this HUD item
-            Matrix4f projModelMatrix = transformation.buildOrtoProjModelMatrix(gameItem, ortho);
-            hudShaderProgram.setUniform("projModelMatrix", projModelMatrix);
-            hudShaderProgram.setUniform("colour", gameItem.getMesh().getMaterial().getAmbientColour());
-            hudShaderProgram.setUniform("hasTexture", gameItem.getMesh().getMaterial().isTextured() ? 1 : 0);
-            // Render the mesh for this HUD item
-            mesh.render();
+            hudBatch.add(gameItem);
         }
+        hud.queueText(hudBatch);
+        hudBatch.flush(hudShaderProgram, hudHasTextureUniform);
 
         hudShaderProgram.unbind();
     }
@@ -213,22 +505,12 @@ public class Renderer {
     private void renderSkyBox(Window window, Camera camera, Scene scene) {
         skyBoxShaderProgram.bind();
 
-        skyBoxShaderProgram.setUniform("texture_sampler", 0);
+        skyBoxShaderProgram.setUniform(skyBoxTextureUniform, 0);
 
-        // Update projection Matrix
-        Matrix4f projectionMatrix = transformation.getProjectionMatrix();//FOV, window.getWidth(), window.getHeight(), Z_NEAR, Z_FAR);
-        skyBoxShaderProgram.setUniform("projectionMatrix", projectionMatrix);
+        // Projection, view and ambient come from the frame uniform block;
+        // the shader drops the view translation so the skybox follows the camera
         SkyBox skyBox = scene.getSkyBox();
-        Matrix4f viewMatrix = transformation.getViewMatrix();//camera);
-        
-        //prevent skybox from translating
-        viewMatrix.m30(0);
-        viewMatrix.m31(0);
-        viewMatrix.m32(0);
-        
-        Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(skyBox, viewMatrix);
-        skyBoxShaderProgram.setUniform("modelViewMatrix", modelViewMatrix);
-        skyBoxShaderProgram.setUniform("ambientLight", scene.getSceneLight().getAmbient());
+        skyBoxShaderProgram.setUniform(skyBoxModelUniform, skyBox.getModelMatrix());
 
         scene.getSkyBox().getMesh().render();
 
@@ -239,9 +521,106 @@ public class Renderer {
      * Clean up the shaders
      */
     public void cleanup() {
-        if (sceneShaderProgram != null) {
-        		sceneShaderProgram.cleanup();
+        for (ShaderReader program : sceneShaderPrograms) {
+            if (program != null) {
+                program.cleanup();
+            }
+        }
+        if (frameUniforms != null) {
+            frameUniforms.cleanup();
+        }
+        if (hudBatch != null) {
+            hudBatch.cleanup();
+        }
+        if (gpuTimer != null) {
+            gpuTimer.cleanup();
+        }
+    }
+    
+    /**
+     * Tell if scene items are drawn instanced
+     * @return instanced?
+     */
+    public boolean isInstancedRendering() {
+        return instancedRendering;
+    }
+    
+    /**
+     * Choose between instanced and per-item drawing
+     * @param instancedRendering true for one draw per Mesh, false for one per Item
+     */
+    public void setInstancedRendering(boolean instancedRendering) {
+        this.instancedRendering = instancedRendering;
+    }
+    
+    /**
+     * Tell if items outside the view frustum are skipped
+     * @return culling?
+     */
+    public boolean isFrustumCulling() {
+        return frustumCulling;
+    }
+    
+    /**
+     * Turn frustum culling of scene items on or off
+     * @param frustumCulling true to skip items outside the view
+     */
+    public void setFrustumCulling(boolean frustumCulling) {
+        this.frustumCulling = frustumCulling;
+    }
+    
+    /**
+     * Get the number of scene items drawn last frame
+     * @return drawn item count
+     */
+    public int getDrawnItems() {
+        return drawnItems;
+    }
+    
+    /**
+     * Get the number of scene items culled last frame
+     * @return culled item count
+     */
+    public int getCulledItems() {
+        return culledItems;
+    }
+    
+    /**
+     * Get last frame's per-pass statistics
+     * <br>
+     * The object is updated in place every frame.
+     * @return draw calls, triangles, state changes, uniform uploads and GPU time per pass
+     */
+    public RenderStats getStats() {
+        return stats;
+    }
+    
+    /**
+     * Get the number of uniform uploads sent to GL last frame
+     * @return issued upload count over all programs
+     */
+    public long getIssuedUniformUploads() {
+        long uploads = hudShaderProgram.getIssuedUploads() + skyBoxShaderProgram.getIssuedUploads();
+        for (ShaderReader program : sceneShaderPrograms) {
+            if (program != null) {
+                uploads += program.getIssuedUploads();
+            }
+        }
+        return uploads;
+    }
+    
+    /**
+     * Get the number of uniform uploads skipped as unchanged last frame
+     * @return skipped upload count over all programs
+     */
+    public long getSkippedUniformUploads() {
+        long uploads = hudShaderProgram.getSkippedUploads() + skyBoxShaderProgram.getSkippedUploads();
+        for (ShaderReader program : sceneShaderPrograms) {
+            if (program != null) {
+                uploads += program.getSkippedUploads();
+            }
         }
+        return uploads;
     }
     
     /**
@@ -5,6 +5,10 @@
  * This class holds the Items, Lights, Meshes and SkyBox
  * that are in the Game. A Game should contain a Scene
  * instance and render based on it.
+ * <br>
+ * Static items are merged by a {@link StaticBatcher} into
+ * a few world space meshes; {@link #getRenderItems()} gives
+ * those batches plus the items that move.
  * </p>
  * <p>
  * @author Antonio Hernández Bejarano (@lwjglgamedev)
@@ -14,28 +18,30 @@
 package com.axiom.engine;
 
 import com.axiom.engine.item.SkyBox;
+import com.axiom.engine.item.StaticBatcher;
 import com.axiom.engine.item.light.Light;
-import com.axiom.engine.item.model.Mesh;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import com.axiom.engine.item.Item;
 
 public class Scene {
 
     private Item[] gameItems;
+    private Item[] renderItems;
+    private final List<Item> staticBatches;
+    private final StaticBatcher staticBatcher;
     private SkyBox skyBox;
     private Light sceneLight;
-    private Map<Mesh, List<Item>> meshMap;
     
     /**
      * Instantiate a new Scene
      */
     public Scene() {
-        meshMap = new HashMap();
+        staticBatches = new ArrayList<>();
+        staticBatcher = new StaticBatcher();
+        renderItems = new Item[0];
     }
     
     /**
@@ -51,18 +57,84 @@ public class Scene {
      * @param gameItems new game items
      */
     public void setGameItems(Item[] gameItems) {
+        this.gameItems = gameItems;
+        rebuildStaticBatches();
+    }
+    
+    /**
+     * Get the items to draw
+     * <br>
+     * The static batches followed by every item that
+     * was not baked into one.
+     * @return the items to render
+     */
+    public Item[] getRenderItems() {
+        return renderItems;
+    }
+    
+    /**
+     * Bake the static items again
+     * <br>
+     * Needed after a static item was moved or changed
+     * material; setting the items does this already.
+     */
+    public void rebuildStaticBatches() {
+        for (Item batch : staticBatches) {
+            batch.getMesh().deleteBuffers();
+        }
+        staticBatches.clear();
         int numGameItems = gameItems != null ? gameItems.length : 0;
-        for (int i=0; i<numGameItems; i++) {
-            Item gameItem = gameItems[i];
-            Mesh mesh = gameItem.getMesh();
-            List<Item> list = meshMap.get(mesh);
-            if ( list == null ) {
-                list = new ArrayList<>();
-                meshMap.put(mesh, list);
+        if (numGameItems == 0) {
+            renderItems = new Item[0];
+            return;
+        }
+        staticBatches.addAll(staticBatcher.build(gameItems));
+        
+        List<Item> items = new ArrayList<>(staticBatches);
+        for (Item gameItem : gameItems) {
+            if (!StaticBatcher.isBatchable(gameItem)) {
+                items.add(gameItem);
             }
-            list.add(gameItem);
         }
-        this.gameItems = gameItems;
+        renderItems = items.toArray(new Item[items.size()]);
+    }
+    
+    /**
+     * Remember every moving item's transform for interpolation
+     * <br>
+     * Call at the start of each update tick; static items
+     * are skipped since they never move.
+     */
+    public void storePreviousTransforms() {
+        if (gameItems == null) {
+            return;
+        }
+        for (Item gameItem : gameItems) {
+            if (!gameItem.isStatic()) {
+                gameItem.storePreviousTransform();
+            }
+        }
+    }
+    
+    /**
+     * Get the batcher that groups static items
+     * <br>
+     * Change its cell size before setting the items.
+     * @return the static batcher
+     */
+    public StaticBatcher getStaticBatcher() {
+        return staticBatcher;
+    }
+    
+    /**
+     * Release the static batches' GPU buffers
+     */
+    public void cleanup() {
+        for (Item batch : staticBatches) {
+            batch.getMesh().deleteBuffers();
+        }
+        staticBatches.clear();
+        renderItems = new Item[0];
     }
     
     /**
@@ -0,0 +1,107 @@
+package com.axiom.engine;
+
+import org.joml.Vector3f;
+
+import com.axiom.engine.item.Item;
+import com.axiom.engine.item.light.Light;
+import com.axiom.engine.item.model.Mesh;
+import com.axiom.engine.math.Camera;
+
+/**
+ * The render thread's copy of a Scene, fed from snapshots
+ * <p>
+ * <br>
+ * Holds one stand-in Item per scene item, plus a Camera and
+ * a Light, all owned by the render thread. Applying a
+ * {@link SceneSnapshot} copies the captured transforms onto
+ * them, previous and current, and the Renderer draws and
+ * interpolates the mirror's Scene as usual.
+ * <br>
+ * When the update thread replaces the scene's item array the
+ * stand-ins are rebuilt, which also rebakes the static
+ * batches, on the render thread where the GL context is.
+ * </p>
+ */
+public class SceneMirror {
+
+    private final Scene scene;
+    private final Camera camera;
+    private final Light light;
+    private Item[] source;
+    private Item[] items;
+
+    public SceneMirror() {
+        scene = new Scene();
+        camera = new Camera();
+        light = new Light(new Vector3f(), new Vector3f(), new Vector3f(), 0, 0);
+        items = new Item[0];
+    }
+
+    /**
+     * Bring the mirror up to date with a snapshot
+     * @param snapshot the snapshot to show
+     */
+    public void apply(SceneSnapshot snapshot) {
+        if (snapshot.getItems() != source) {
+            rebuild(snapshot);
+        }
+        for (int i = 0; i < items.length; i++) {
+            Item gameItem = items[i];
+            Mesh mesh = snapshot.getMesh(i);
+            if (gameItem.getMesh() != mesh) {
+                gameItem.setMesh(mesh);
+            }
+            snapshot.applyTransform(i, gameItem);
+        }
+
+        snapshot.applyCamera(camera);
+
+        Light snapshotLight = snapshot.getLight();
+        if (snapshotLight != null) {
+            light.getColor().set(snapshotLight.getColor());
+            light.getPosition().set(snapshotLight.getPosition());
+            light.getAmbient().set(snapshotLight.getAmbient());
+            light.setFalloff(snapshotLight.getFalloff());
+            light.setRadius(snapshotLight.getRadius());
+            scene.setSceneLight(light);
+        } else {
+            scene.setSceneLight(null);
+        }
+        scene.setSkyBox(snapshot.getSkyBox());
+    }
+
+    private void rebuild(SceneSnapshot snapshot) {
+        source = snapshot.getItems();
+        items = new Item[snapshot.getItemCount()];
+        for (int i = 0; i < items.length; i++) {
+            Item gameItem = new Item(snapshot.getMesh(i));
+            gameItem.setStatic(snapshot.isStatic(i));
+            snapshot.applyTransform(i, gameItem);
+            items[i] = gameItem;
+        }
+        scene.setGameItems(items);
+    }
+
+    /**
+     * Get the scene to render
+     * @return the mirrored scene
+     */
+    public Scene getScene() {
+        return scene;
+    }
+
+    /**
+     * Get the camera to render from
+     * @return the mirrored camera
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Release the mirrored scene's static batches
+     */
+    public void cleanup() {
+        scene.cleanup();
+    }
+}
@@ -0,0 +1,210 @@
+package com.axiom.engine;
+
+import java.util.Arrays;
+
+import org.joml.Vector3f;
+
+import com.axiom.engine.item.Item;
+import com.axiom.engine.item.SkyBox;
+import com.axiom.engine.item.light.Light;
+import com.axiom.engine.item.model.Mesh;
+import com.axiom.engine.math.Camera;
+
+/**
+ * The renderable state of a Scene at the end of one update tick
+ * <p>
+ * <br>
+ * When the Engine runs updates on their own thread, the update
+ * thread copies the transforms of every item, the camera and
+ * the light into a snapshot after each tick, and the render
+ * thread draws from the last published one through a
+ * {@link SceneMirror}. Neither thread ever touches the other's
+ * objects, so no locks are needed.
+ * <br>
+ * Each item and the camera are captured with both their
+ * previous and current transforms, so the render thread can
+ * interpolate between the last two ticks.
+ * <br>
+ * Items are identified by their index in the Scene's item
+ * array. Meshes and the skybox are shared by reference, since
+ * they are only changed on the render thread.
+ * <br>
+ * Snapshots are reused through a {@link SnapshotBuffer};
+ * capturing one only allocates when the scene has grown.
+ * </p>
+ */
+public class SceneSnapshot {
+
+    // Position xyz, rotation xyz and scale of each item, previous then current
+    private static final int FLOATS_PER_TRANSFORM = 7;
+    private static final int FLOATS_PER_ITEM = FLOATS_PER_TRANSFORM * 2;
+
+    private Item[] items;
+    private Mesh[] meshes;
+    private boolean[] statics;
+    private float[] transforms;
+    private int itemCount;
+
+    private final Vector3f cameraPosition;
+    private final Vector3f cameraRotation;
+    private final Vector3f previousCameraPosition;
+    private final Vector3f previousCameraRotation;
+    private final Light light;
+    private boolean hasLight;
+    private SkyBox skyBox;
+    private long tick;
+    private long time;
+
+    public SceneSnapshot() {
+        meshes = new Mesh[0];
+        statics = new boolean[0];
+        transforms = new float[0];
+        cameraPosition = new Vector3f();
+        cameraRotation = new Vector3f();
+        previousCameraPosition = new Vector3f();
+        previousCameraRotation = new Vector3f();
+        light = new Light(new Vector3f(), new Vector3f(), new Vector3f(), 0, 0);
+    }
+
+    /**
+     * Copy a scene's state
+     * <br>
+     * Call from the thread that updates the scene.
+     * @param scene the scene
+     * @param camera the camera
+     * @param tick the number of the update tick just run
+     */
+    public void capture(Scene scene, Camera camera, long tick) {
+        this.tick = tick;
+        time = System.nanoTime();
+        Item[] gameItems = scene.getGameItems();
+        items = gameItems;
+        itemCount = gameItems != null ? gameItems.length : 0;
+        if (meshes.length < itemCount) {
+            meshes = new Mesh[itemCount];
+            statics = new boolean[itemCount];
+            transforms = new float[itemCount * FLOATS_PER_ITEM];
+        } else {
+            Arrays.fill(meshes, itemCount, meshes.length, null);
+        }
+        for (int i = 0; i < itemCount; i++) {
+            Item gameItem = gameItems[i];
+            int t = i * FLOATS_PER_ITEM;
+            put(t, gameItem.getPreviousPosition(), gameItem.getPreviousRotation(), gameItem.getPreviousScale());
+            put(t + FLOATS_PER_TRANSFORM, gameItem.getPosition(), gameItem.getRotation(), gameItem.getScale());
+            meshes[i] = gameItem.getMesh();
+            statics[i] = gameItem.isStatic();
+        }
+
+        cameraPosition.set(camera.getPosition());
+        cameraRotation.set(camera.getRotation());
+        previousCameraPosition.set(camera.getPreviousPosition());
+        previousCameraRotation.set(camera.getPreviousRotation());
+
+        Light sceneLight = scene.getSceneLight();
+        hasLight = sceneLight != null;
+        if (hasLight) {
+            light.getColor().set(sceneLight.getColor());
+            light.getPosition().set(sceneLight.getPosition());
+            light.getAmbient().set(sceneLight.getAmbient());
+            light.setFalloff(sceneLight.getFalloff());
+            light.setRadius(sceneLight.getRadius());
+        }
+        skyBox = scene.getSkyBox();
+    }
+
+    private void put(int t, Vector3f position, Vector3f rotation, float scale) {
+        transforms[t] = position.x;
+        transforms[t + 1] = position.y;
+        transforms[t + 2] = position.z;
+        transforms[t + 3] = rotation.x;
+        transforms[t + 4] = rotation.y;
+        transforms[t + 5] = rotation.z;
+        transforms[t + 6] = scale;
+    }
+
+    /**
+     * Get the Scene's item array at capture time
+     * <br>
+     * Only its identity may be used; the items themselves
+     * belong to the update thread.
+     * @return the captured array, or null
+     */
+    public Item[] getItems() {
+        return items;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public Mesh getMesh(int index) {
+        return meshes[index];
+    }
+
+    public boolean isStatic(int index) {
+        return statics[index];
+    }
+
+    /**
+     * Copy an item's captured transforms onto another item
+     * @param index the item's index in the scene
+     * @param dest the item to set, previous and current transform
+     */
+    public void applyTransform(int index, Item dest) {
+        int t = index * FLOATS_PER_ITEM;
+        set(t, dest);
+        dest.storePreviousTransform();
+        set(t + FLOATS_PER_TRANSFORM, dest);
+    }
+
+    private void set(int t, Item dest) {
+        dest.setPosition(transforms[t], transforms[t + 1], transforms[t + 2]);
+        dest.setRotation(transforms[t + 3], transforms[t + 4], transforms[t + 5]);
+        dest.setScale(transforms[t + 6]);
+    }
+
+    /**
+     * Copy the captured camera onto another camera
+     * @param dest the camera to set, previous and current state
+     */
+    public void applyCamera(Camera dest) {
+        dest.getPosition().set(previousCameraPosition);
+        dest.getRotation().set(previousCameraRotation);
+        dest.storePreviousTransform();
+        dest.getPosition().set(cameraPosition);
+        dest.getRotation().set(cameraRotation);
+    }
+
+    public Vector3f getCameraPosition() {
+        return cameraPosition;
+    }
+
+    public Vector3f getCameraRotation() {
+        return cameraRotation;
+    }
+
+    /**
+     * Get the captured light
+     * @return a copy of the scene's light, or null if it had none
+     */
+    public Light getLight() {
+        return hasLight ? light : null;
+    }
+
+    public SkyBox getSkyBox() {
+        return skyBox;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Get when the snapshot was captured
+     * @return System.nanoTime() at capture
+     */
+    public long getTime() {
+        return time;
+    }
+}
@@ -0,0 +1,75 @@
+package com.axiom.engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands scene snapshots from the update thread to the render thread
+ * <p>
+ * <br>
+ * A lock free triple buffer. The writer fills its back
+ * snapshot and publishes it by swapping it with the shared
+ * one; the reader takes the shared one in exchange for its
+ * front snapshot whenever something new was published. Each
+ * side always owns one snapshot outright, so neither ever
+ * waits, and the reader always gets the latest complete tick.
+ * With only two buffers the writer would have to wait for
+ * the reader to let go of one.
+ * <br>
+ * Exactly one thread may write and one may read.
+ * <br>
+ * Example usage:
+ * <pre>
+ * // update thread
+ * game.snapshot(buffer.beginWrite());
+ * buffer.publish();
+ * // render thread
+ * SceneSnapshot snapshot = buffer.acquire();
+ * </pre>
+ * </p>
+ */
+public class SnapshotBuffer {
+
+    // Set in the shared state when the shared slot holds a snapshot the reader has not seen
+    private static final int FRESH = 4;
+    private static final int INDEX_MASK = 3;
+
+    private final SceneSnapshot[] slots;
+    private final AtomicInteger shared;
+    private int back;
+    private int front;
+
+    public SnapshotBuffer() {
+        slots = new SceneSnapshot[] { new SceneSnapshot(), new SceneSnapshot(), new SceneSnapshot() };
+        front = 0;
+        shared = new AtomicInteger(1);
+        back = 2;
+    }
+
+    /**
+     * Get the snapshot to fill; writer only
+     * @return the writer's snapshot
+     */
+    public SceneSnapshot beginWrite() {
+        return slots[back];
+    }
+
+    /**
+     * Make the filled snapshot the latest; writer only
+     */
+    public void publish() {
+        back = shared.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Get the latest published snapshot; reader only
+     * <br>
+     * It stays valid, and unchanged, until the next call.
+     * @return the newest snapshot
+     */
+    public SceneSnapshot acquire() {
+        if ((shared.get() & FRESH) != 0) {
+            front = shared.getAndSet(front) & INDEX_MASK;
+        }
+        return slots[front];
+    }
+}
@@ -21,6 +21,7 @@ import static org.lwjgl.system.MemoryUtil.NULL;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.opengl.GL;
+import com.axiom.engine.render.GLStateCache;
 
 public class Window {
 
@@ -110,17 +111,20 @@ public class Window {
         glfwShowWindow(windowHandle);
         
         GL.createCapabilities();
+        // A new context starts from defaults the cache knows nothing about
+        GLStateCache glState = GLStateCache.getInstance();
+        glState.invalidate();
 
         // Set the clear color
         glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
         
-        glEnable(GL_DEPTH_TEST);
+        glState.setDepthTest(true);
         glDepthFunc(GL_LESS);
         
-        glEnable(GL_BLEND);
+        glState.setBlend(true);
         glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
         
-        glEnable(GL_CULL_FACE);
+        glState.setCullFace(true);
         glCullFace(GL_BACK);
     }
     
@@ -14,6 +14,7 @@
 package com.axiom.engine.hud;
 
 import com.axiom.engine.item.Item;
+import com.axiom.engine.render.HudBatch;
 
 public interface IHud {
 	/**
@@ -22,6 +23,17 @@ public interface IHud {
 	 */
     Item[] getGameItems();
 
+    /**
+     * Queue text that is drawn without an Item
+     * <br>
+     * Called every frame after the items are added. Text
+     * that changes often should go here as a {@link TextBuffer},
+     * since changing a {@link TextItem} rebuilds its Mesh.
+     * @param batch the batch the HUD is drawn with
+     */
+    default void queueText(HudBatch batch) {
+    }
+
     /**
      * Clean up the HUD
      */
@@ -0,0 +1,111 @@
+package com.axiom.engine.hud;
+
+import java.util.Arrays;
+
+/**
+ * A reusable line of HUD text
+ * <p>
+ * <br>
+ * Text that changes every frame, like counters, is written
+ * into a TextBuffer instead of building a new String. Numbers
+ * are formatted digit by digit, so once the buffer has grown
+ * to its longest line nothing is allocated. A
+ * {@link com.axiom.engine.render.HudBatch} draws the
+ * characters straight from the buffer, without a Mesh.
+ * <br>
+ * Example usage:
+ * <pre>
+ * text.clear().append("Drawn: ").append(renderer.getDrawnItems());
+ * </pre>
+ * </p>
+ */
+public class TextBuffer implements CharSequence {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private char[] chars;
+    private int length;
+
+    public TextBuffer() {
+        chars = new char[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Empty the buffer
+     * @return this buffer
+     */
+    public TextBuffer clear() {
+        length = 0;
+        return this;
+    }
+
+    /**
+     * Append text
+     * @param text the text to add
+     * @return this buffer
+     */
+    public TextBuffer append(String text) {
+        int count = text.length();
+        ensureCapacity(length + count);
+        text.getChars(0, count, chars, length);
+        length += count;
+        return this;
+    }
+
+    /**
+     * Append a number in decimal
+     * @param value the number to add
+     * @return this buffer
+     */
+    public TextBuffer append(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append("-9223372036854775808");
+        }
+        if (value < 0) {
+            ensureCapacity(length + 1);
+            chars[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        ensureCapacity(length + digits);
+        // Fill the digits from the last one back
+        for (int i = length + digits - 1; i >= length; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside text of length " + length);
+        }
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
@@ -51,31 +51,15 @@ public final class InputHandler {
         displVec = new Vector2f();
     }
     
-	// tied to the scroll wheel
+	// GLFW callbacks, created by init so a headless game never loads the natives
 
-	public GLFWScrollCallback scroll = new GLFWScrollCallback()
-    {
-	    	public void invoke(long window, double xoffset, double yoffset)
-	    	{
-	    		scrollStates[0] = xoffset;
-	    		scrollStates[1] = yoffset;
-	    	}
-    };
+	// tied to the scroll wheel
+	public GLFWScrollCallback scroll;
 
     //tied to the keyboard
-	public GLFWKeyCallback keyboard = new GLFWKeyCallback()
-    {
-        public void invoke(long window, int key, int scancode, int action, int mods)
-        {
-            activeKeys[key]=action!=GLFW_RELEASE;keyStates[key]=action;
-        }
-    };
+	public GLFWKeyCallback keyboard;
     
-	public GLFWMouseButtonCallback mouse = new GLFWMouseButtonCallback()
-    {
-        public void invoke(long window, int button, int action, int mods)
-        {
-            activeMouseButtons[button]=action!=GLFW_RELEASE;mouseButtonStates[button]=action;}};
+	public GLFWMouseButtonCallback mouse;
 	
     /**
      * Resets the keyboard states
@@ -186,6 +170,26 @@ public final class InputHandler {
 	}
 	
     public void init(Window window) {
+		scroll = new GLFWScrollCallback()
+	    {
+		    	public void invoke(long window, double xoffset, double yoffset)
+		    	{
+		    		scrollStates[0] = xoffset;
+		    		scrollStates[1] = yoffset;
+		    	}
+	    };
+		keyboard = new GLFWKeyCallback()
+	    {
+	        public void invoke(long window, int key, int scancode, int action, int mods)
+	        {
+	            activeKeys[key]=action!=GLFW_RELEASE;keyStates[key]=action;
+	        }
+	    };
+		mouse = new GLFWMouseButtonCallback()
+	    {
+	        public void invoke(long window, int button, int action, int mods)
+	        {
+	            activeMouseButtons[button]=action!=GLFW_RELEASE;mouseButtonStates[button]=action;}};
 		glfwSetKeyCallback(window.getWindowHandle(), this.keyboard);
 		glfwSetScrollCallback(window.getWindowHandle(), this.scroll);
         glfwSetCursorPosCallback(window.getWindowHandle(), (windowHandle, xpos, ypos) -> {
@@ -30,17 +30,29 @@ public class CollidableItem extends Item implements Collidable {
 		super.setRotation(x, y, z);
     }
     
+    /**
+     * Put the item back where it was before the last move
+     * <br>
+     * A jump, so it is not interpolated.
+     */
     public void resetPosition() {
     		super.setPosition(oldPosition.x, oldPosition.y, oldPosition.z);
+    		storePreviousTransform();
     }
     
+    /**
+     * Turn the item back to its rotation before the last turn
+     * <br>
+     * A jump, so it is not interpolated.
+     */
     public void resetRotation() {
-		super.setPosition(oldRotation.x, oldRotation.y, oldRotation.z);
+		super.setRotation(oldRotation.x, oldRotation.y, oldRotation.z);
+		storePreviousTransform();
     }
 
 
 	@Override
 	public float[] getPositions() {
-		return positions;
+		return getMesh().getPositions();
 	}	
 }
@@ -1,35 +1,58 @@
 package com.axiom.engine.item;
 
+import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
 import com.axiom.engine.item.model.Material;
 import com.axiom.engine.item.model.Mesh;
 import com.axiom.engine.item.model.Texture;
 import com.axiom.engine.loaders.OBJLoader;
+import com.axiom.engine.math.BoundingBox;
+import com.axiom.engine.math.Transformation;
 public class Item {
 
     private Mesh mesh;
 
     protected final Vector3f position;
-    protected Vector3f oldPosition;
     private float scale;
-    protected float[] positions;
     protected final Vector3f rotation;
 
+    // Model matrix and world bounds, rebuilt only when the transform changes
+    private final Matrix4f modelMatrix;
+    private final BoundingBox worldBounds;
+    private final Vector3f builtPosition;
+    private final Vector3f builtRotation;
+    private float builtScale;
+    private boolean modelMatrixValid;
+    private boolean worldBoundsValid;
+    private boolean isStatic;
+
+    // Transform at the start of the last update tick, and the matrix and bounds drawn between ticks
+    private final Vector3f previousPosition;
+    private final Vector3f previousRotation;
+    private float previousScale;
+    private boolean hasPrevious;
+    private final Matrix4f renderMatrix;
+    private final BoundingBox renderBounds;
+    private boolean interpolated;
+
     public Item(Mesh mesh) {
+        this();
         this.mesh = mesh;
-        position = new Vector3f(0, 0, 0);
-        scale = 1;
-        rotation = new Vector3f(0, 0, 0);
-        oldPosition = new Vector3f(0, 0, 0);
-        positions = mesh.getPositions();
     }
   
     public Item() {
         position = new Vector3f(0, 0, 0);
         scale = 1;
         rotation = new Vector3f(0, 0, 0);
-        oldPosition = new Vector3f(0, 0, 0);
+        modelMatrix = new Matrix4f();
+        worldBounds = new BoundingBox();
+        builtPosition = new Vector3f();
+        builtRotation = new Vector3f();
+        previousPosition = new Vector3f();
+        previousRotation = new Vector3f();
+        renderMatrix = new Matrix4f();
+        renderBounds = new BoundingBox();
         this.mesh = null;
     }
     
@@ -40,7 +63,6 @@ public class Item {
 		Material material = new Material(texture, reflectance);
 		mesh.setMaterial(material);
 		this.mesh = mesh;
-		positions = mesh.getPositions();
 	}
 
 	public Vector3f getPosition() {
@@ -51,12 +73,6 @@ public class Item {
         this.position.x = x;
         this.position.y = y;
         this.position.z = z;
-		for (int i = 0; i < positions.length; i+=3) {
-			positions[i]     -= oldPosition.x - position.x;
-			positions[i + 1] -= oldPosition.y - position.y;
-			positions[i + 2] -= oldPosition.z - position.z;
-		}
-        this.oldPosition = new Vector3f(x, y, z);
     }
 
     public float getScale() {
@@ -65,11 +81,6 @@ public class Item {
 
     public void setScale(float scale) {
         this.scale = scale;
-		for (int i = 0; i < positions.length; i+=3) {
-			positions[i]     *= scale;
-			positions[i + 1] *= scale;
-			positions[i + 2] *= scale;
-		}
     }
 
     public Vector3f getRotation() {
@@ -87,7 +98,7 @@ public class Item {
     }
     public void setMesh(Mesh mesh) {
     		this.mesh = mesh;
-    		this.positions = mesh.getPositions();
+    		worldBoundsValid = false;
     }
 	  public void setPosition(Vector3f pos) {
 		    setPosition(pos.x, pos.y, pos.z);
@@ -97,4 +108,164 @@ public class Item {
 		    setRotation(rot.x, rot.y, rot.z);
 	  }
 
-}
\ No newline at end of file
+    /**
+     * Tell if the item never moves
+     * @return static?
+     */
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    /**
+     * Mark the item as never moving
+     * <br>
+     * Static items are baked into the {@link com.axiom.engine.Scene}'s
+     * batches when its items are set, and drawn from there.
+     * Moving one afterwards has no visible effect until
+     * {@link com.axiom.engine.Scene#rebuildStaticBatches()}.
+     * @param isStatic true if the item will not move
+     */
+    public void setStatic(boolean isStatic) {
+        this.isStatic = isStatic;
+    }
+
+    /**
+     * Get the model matrix
+     * <br>
+     * The matrix is cached and only rebuilt when the
+     * position, rotation or scale changed since the last
+     * call, including changes made through the vectors
+     * returned by {@link #getPosition()} and {@link #getRotation()}.
+     * @return the model (local to world) matrix; do not modify
+     */
+    public Matrix4f getModelMatrix() {
+        if (!modelMatrixValid || !builtPosition.equals(position) || !builtRotation.equals(rotation) || builtScale != scale) {
+            modelMatrix.identity().translate(position).
+                    rotateX((float)Math.toRadians(-rotation.x)).
+                    rotateY((float)Math.toRadians(-rotation.y)).
+                    rotateZ((float)Math.toRadians(-rotation.z)).
+                    scale(scale);
+            builtPosition.set(position);
+            builtRotation.set(rotation);
+            builtScale = scale;
+            modelMatrixValid = true;
+            worldBoundsValid = false;
+        }
+        return modelMatrix;
+    }
+
+    /**
+     * Remember the current transform as the previous one
+     * <br>
+     * Called at the start of every update tick, so rendering
+     * can {@link #interpolate(float) interpolate} between the
+     * last two ticks. Calling it again right after moving an
+     * item makes the move a jump instead of a slide.
+     */
+    public void storePreviousTransform() {
+        previousPosition.set(position);
+        previousRotation.set(rotation);
+        previousScale = scale;
+        hasPrevious = true;
+    }
+
+    /**
+     * Get the position at the start of the last tick
+     * @return the previous position, or the current one if none was stored
+     */
+    public Vector3f getPreviousPosition() {
+        return hasPrevious ? previousPosition : position;
+    }
+
+    /**
+     * Get the rotation at the start of the last tick
+     * @return the previous rotation, or the current one if none was stored
+     */
+    public Vector3f getPreviousRotation() {
+        return hasPrevious ? previousRotation : rotation;
+    }
+
+    /**
+     * Get the scale at the start of the last tick
+     * @return the previous scale, or the current one if none was stored
+     */
+    public float getPreviousScale() {
+        return hasPrevious ? previousScale : scale;
+    }
+
+    /**
+     * Blend the previous and current transforms for drawing
+     * <br>
+     * The Renderer calls this once per frame for each item,
+     * before culling it. Items that did not move last tick keep
+     * using the cached model matrix and world bounds. Rotations turn the short way
+     * round, see {@link Transformation#lerpAngle}.
+     * @param alpha how far rendering is past the last tick, from 0 to 1
+     */
+    public void interpolate(float alpha) {
+        interpolated = hasPrevious && alpha < 1 && (previousScale != scale
+                || !previousPosition.equals(position) || !previousRotation.equals(rotation));
+        if (!interpolated) {
+            return;
+        }
+        float beta = 1 - alpha;
+        renderMatrix.identity().translate(
+                    previousPosition.x * beta + position.x * alpha,
+                    previousPosition.y * beta + position.y * alpha,
+                    previousPosition.z * beta + position.z * alpha).
+                rotateX((float)Math.toRadians(-Transformation.lerpAngle(previousRotation.x, rotation.x, alpha))).
+                rotateY((float)Math.toRadians(-Transformation.lerpAngle(previousRotation.y, rotation.y, alpha))).
+                rotateZ((float)Math.toRadians(-Transformation.lerpAngle(previousRotation.z, rotation.z, alpha))).
+                scale(previousScale * beta + scale * alpha);
+        renderBounds.reset();
+        if (mesh != null) {
+            mesh.getLocalBounds().transform(renderMatrix, renderBounds);
+        }
+        if (renderBounds.isEmpty()) {
+            float x = renderMatrix.m30();
+            float y = renderMatrix.m31();
+            float z = renderMatrix.m32();
+            renderBounds.set(x, y, z, x, y, z);
+        }
+    }
+
+    /**
+     * Get the matrix to draw the item with
+     * @return the matrix from the last {@link #interpolate(float)}, or the model matrix; do not modify
+     */
+    public Matrix4f getRenderMatrix() {
+        return interpolated ? renderMatrix : getModelMatrix();
+    }
+
+    /**
+     * Get the world space bounds of the item as drawn
+     * @return the bounds under {@link #getRenderMatrix()}; do not modify
+     */
+    public BoundingBox getRenderBounds() {
+        return interpolated ? renderBounds : getWorldBounds();
+    }
+
+    /**
+     * Get the world space bounding box
+     * <br>
+     * The mesh's local bounds transformed by the model
+     * matrix, recomputed on the first call after the
+     * transform changes, so moving an item stays O(1).
+     * @return the world bounds; do not modify
+     */
+    public BoundingBox getWorldBounds() {
+        Matrix4f matrix = getModelMatrix();
+        if (!worldBoundsValid) {
+            worldBounds.reset();
+            if (mesh != null) {
+                mesh.getLocalBounds().transform(matrix, worldBounds);
+            }
+            if (worldBounds.isEmpty()) {
+                worldBounds.set(position.x, position.y, position.z, position.x, position.y, position.z);
+            }
+            worldBoundsValid = true;
+        }
+        return worldBounds;
+    }
+
+}
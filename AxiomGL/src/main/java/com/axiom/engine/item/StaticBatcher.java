@@ -0,0 +1,267 @@
+package com.axiom.engine.item;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import com.axiom.engine.item.model.Material;
+import com.axiom.engine.item.model.Mesh;
+import com.axiom.engine.item.model.MeshGeometry;
+import com.axiom.engine.item.model.Texture;
+import com.axiom.engine.math.BoundingBox;
+
+/**
+ * Bakes static items into a few large meshes
+ * <p>
+ * <br>
+ * Items marked with {@link Item#setStatic(boolean)} are
+ * grouped by Material and by the grid cell their bounds
+ * centre falls in. Cells are square columns on the x/z plane,
+ * unbounded in height, since levels mostly spread sideways.
+ * Each group's vertices are transformed to world space once
+ * and merged into one Mesh, drawn by an Item with the
+ * identity transform. A whole static level then costs
+ * one draw per cell and material, and the cells are small
+ * enough that frustum culling still rejects the ones out of view.
+ * <br>
+ * Materials are compared by value: their textures, colours,
+ * reflectance and flags. Cloned meshes each carry their own
+ * Material copy, and those still merge as long as the copies
+ * are alike. A batch is drawn with the first of its items'
+ * materials.
+ * <br>
+ * Transparent materials are never baked, since their items
+ * have to be sorted back to front one by one.
+ * </p>
+ */
+public class StaticBatcher {
+
+    public static final float DEFAULT_CELL_SIZE = 32.0f;
+
+    // Cell coordinates are packed 32 bits each into a long key
+    private static final long CELL_MASK = 0xFFFFFFFFL;
+
+    private float cellSize;
+
+    /**
+     * Construct a batcher with {@link #DEFAULT_CELL_SIZE} cells
+     */
+    public StaticBatcher() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Construct a batcher
+     * @param cellSize edge length of the cells items are grouped in
+     */
+    public StaticBatcher(float cellSize) {
+        setCellSize(cellSize);
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public void setCellSize(float cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Tell if an item can go into a batch
+     * @param gameItem the item
+     * @return true if it is static and opaque
+     */
+    public static boolean isBatchable(Item gameItem) {
+        Mesh mesh = gameItem.getMesh();
+        return gameItem.isStatic() && mesh != null && mesh.getMaterial() != null
+                && !mesh.getMaterial().isTransparent();
+    }
+
+    /**
+     * Bake items into batches
+     * <br>
+     * Items that are not {@link #isBatchable batchable} are
+     * ignored. The returned items own their meshes; release
+     * them with {@link Mesh#deleteBuffers()}, which leaves the
+     * shared textures alone.
+     * @param gameItems the items to bake
+     * @return one item per material and cell
+     */
+    public List<Item> build(Item[] gameItems) {
+        // Material, then cell, to the items in it; materials are kept in first seen order
+        Map<MaterialKey, Map<Long, List<Item>>> groups = new LinkedHashMap<>();
+        for (Item gameItem : gameItems) {
+            if (!isBatchable(gameItem)) {
+                continue;
+            }
+            MaterialKey key = new MaterialKey(gameItem.getMesh().getMaterial());
+            Map<Long, List<Item>> cells = groups.get(key);
+            if (cells == null) {
+                cells = new HashMap<>();
+                groups.put(key, cells);
+            }
+            Long cell = cellKey(gameItem.getWorldBounds());
+            List<Item> items = cells.get(cell);
+            if (items == null) {
+                items = new ArrayList<>();
+                cells.put(cell, items);
+            }
+            items.add(gameItem);
+        }
+
+        List<Item> batches = new ArrayList<>();
+        for (Map.Entry<MaterialKey, Map<Long, List<Item>>> group : groups.entrySet()) {
+            for (List<Item> items : group.getValue().values()) {
+                Item batch = new Item(bake(items));
+                batch.getMesh().setMaterial(group.getKey().material);
+                batch.setStatic(true);
+                batches.add(batch);
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * What makes two materials draw the same, taken when the batches are built
+     */
+    private static final class MaterialKey {
+
+        // The first material seen with this key; not part of the comparison
+        private final Material material;
+        private final int texture;
+        private final int normalMap;
+        private final int specularMap;
+        private final Vector4f ambientColour;
+        private final Vector4f diffuseColour;
+        private final Vector4f specularColour;
+        private final float reflectance;
+        private final boolean flatShading;
+        private final int hash;
+
+        MaterialKey(Material material) {
+            this.material = material;
+            texture = textureId(material.getTexture());
+            normalMap = textureId(material.getNormalMap());
+            specularMap = textureId(material.getSpecularMap());
+            ambientColour = new Vector4f(material.getAmbientColour());
+            diffuseColour = new Vector4f(material.getDiffuseColour());
+            specularColour = new Vector4f(material.getSpecularColour());
+            reflectance = material.getReflectance();
+            flatShading = material.isFlatShading();
+            int h = texture;
+            h = 31 * h + normalMap;
+            h = 31 * h + specularMap;
+            h = 31 * h + ambientColour.hashCode();
+            h = 31 * h + diffuseColour.hashCode();
+            h = 31 * h + specularColour.hashCode();
+            h = 31 * h + Float.floatToIntBits(reflectance);
+            hash = 31 * h + (flatShading ? 1 : 0);
+        }
+
+        private static int textureId(Texture texture) {
+            return texture != null ? texture.getId() : 0;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MaterialKey)) {
+                return false;
+            }
+            MaterialKey other = (MaterialKey) obj;
+            return texture == other.texture && normalMap == other.normalMap && specularMap == other.specularMap
+                    && ambientColour.equals(other.ambientColour) && diffuseColour.equals(other.diffuseColour)
+                    && specularColour.equals(other.specularColour)
+                    && Float.floatToIntBits(reflectance) == Float.floatToIntBits(other.reflectance)
+                    && flatShading == other.flatShading;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private long cellKey(BoundingBox bounds) {
+        long x = (long) Math.floor((bounds.minX + bounds.maxX) * 0.5f / cellSize);
+        long z = (long) Math.floor((bounds.minZ + bounds.maxZ) * 0.5f / cellSize);
+        return ((x & CELL_MASK) << 32) | (z & CELL_MASK);
+    }
+
+    /**
+     * Merge items into one world space Mesh
+     * @param items the items, all with meshes
+     * @return the merged Mesh, without a material; kept on the CPU if any item's was
+     */
+    private static Mesh bake(List<Item> items) {
+        int vertexCount = 0;
+        int indexCount = 0;
+        boolean upload = true;
+        for (Item gameItem : items) {
+            MeshGeometry geometry = gameItem.getMesh().getGeometry();
+            vertexCount += geometry.getVertexCount();
+            indexCount += geometry.getIndexCount();
+            upload &= geometry.isUploaded();
+        }
+        float[] positions = new float[vertexCount * 3];
+        float[] textCoords = new float[vertexCount * 2];
+        float[] normals = new float[vertexCount * 3];
+        int[] indices = new int[indexCount];
+
+        Matrix3f normalMatrix = new Matrix3f();
+        Vector3f v = new Vector3f();
+        int vertex = 0;
+        int index = 0;
+        for (Item gameItem : items) {
+            MeshGeometry geometry = gameItem.getMesh().getGeometry();
+            Matrix4f modelMatrix = gameItem.getModelMatrix();
+            // Normals take the inverse transpose, so scaling does not bend them
+            modelMatrix.normal(normalMatrix);
+
+            float[] itemPositions = geometry.getPositions();
+            float[] itemTextCoords = geometry.getTextCoords();
+            float[] itemNormals = geometry.getNormals();
+            int itemVertices = geometry.getVertexCount();
+            for (int i = 0; i < itemVertices; i++) {
+                int p = i * 3;
+                int out = (vertex + i) * 3;
+                modelMatrix.transformPosition(v.set(itemPositions[p], itemPositions[p + 1], itemPositions[p + 2]));
+                positions[out] = v.x;
+                positions[out + 1] = v.y;
+                positions[out + 2] = v.z;
+                if (p + 2 < itemNormals.length) {
+                    normalMatrix.transform(v.set(itemNormals[p], itemNormals[p + 1], itemNormals[p + 2]));
+                    if (v.lengthSquared() > 0) {
+                        v.normalize();
+                    }
+                    normals[out] = v.x;
+                    normals[out + 1] = v.y;
+                    normals[out + 2] = v.z;
+                }
+            }
+            System.arraycopy(itemTextCoords, 0, textCoords, vertex * 2,
+                    Math.min(itemTextCoords.length, itemVertices * 2));
+
+            for (int itemIndex : geometry.getIndices()) {
+                indices[index++] = vertex + itemIndex;
+            }
+            vertex += itemVertices;
+        }
+        if (!upload) {
+            return new Mesh(MeshGeometry.createUnloaded(positions, textCoords, normals, indices));
+        }
+        return new Mesh(positions, textCoords, normals, indices);
+    }
+}
@@ -0,0 +1,188 @@
+package com.axiom.engine.item;
+
+import java.util.Arrays;
+
+import com.axiom.engine.math.BoundingBox;
+
+/**
+ * Broadphase collision detection
+ * <p>
+ * <br>
+ * Keeps the world bounds of every registered
+ * {@link CollidableItem} sorted along the x axis. Each
+ * {@link #update()} refreshes the bounds, re-sorts with an
+ * insertion sort (close to linear when items move a little
+ * between ticks) and sweeps the list to collect the pairs
+ * whose boxes overlap. Only those pairs need the narrowphase
+ * {@link com.axiom.engine.item.interfaces.Collidable#collides}.
+ * <br>
+ * Example usage:
+ * <pre>
+ * int pairs = broadphase.update();
+ * for (int i = 0; i &lt; pairs; i++) {
+ *     if (broadphase.getFirst(i).collides(broadphase.getSecond(i), camera)) ...
+ * }
+ * </pre>
+ * </p>
+ */
+public class SweepAndPrune {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Registered items and their x extents, kept sorted by minX
+    private CollidableItem[] items;
+    private float[] minX;
+    private float[] maxX;
+    private int itemCount;
+
+    // Candidate pairs from the last update, two entries per pair
+    private CollidableItem[] pairs;
+    private int pairCount;
+
+    /**
+     * Construct an empty broadphase
+     */
+    public SweepAndPrune() {
+        items = new CollidableItem[INITIAL_CAPACITY];
+        minX = new float[INITIAL_CAPACITY];
+        maxX = new float[INITIAL_CAPACITY];
+        pairs = new CollidableItem[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * Register an item
+     * @param item the item to track
+     */
+    public void add(CollidableItem item) {
+        if (itemCount == items.length) {
+            int capacity = items.length * 2;
+            items = Arrays.copyOf(items, capacity);
+            minX = Arrays.copyOf(minX, capacity);
+            maxX = Arrays.copyOf(maxX, capacity);
+        }
+        // Append, the next update sorts it into place
+        BoundingBox bounds = item.getWorldBounds();
+        items[itemCount] = item;
+        minX[itemCount] = bounds.minX;
+        maxX[itemCount] = bounds.maxX;
+        itemCount++;
+    }
+
+    /**
+     * Stop tracking an item
+     * @param item the item to remove
+     * @return true if it was registered
+     */
+    public boolean remove(CollidableItem item) {
+        for (int i = 0; i < itemCount; i++) {
+            if (items[i] == item) {
+                // Shift down to keep the sorted order
+                int tail = itemCount - i - 1;
+                System.arraycopy(items, i + 1, items, i, tail);
+                System.arraycopy(minX, i + 1, minX, i, tail);
+                System.arraycopy(maxX, i + 1, maxX, i, tail);
+                itemCount--;
+                items[itemCount] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Refresh the bounds, re-sort and find the candidate pairs
+     * <br>
+     * Call once per update tick after items have moved.
+     * @return the number of candidate pairs
+     */
+    public int update() {
+        for (int i = 0; i < itemCount; i++) {
+            BoundingBox bounds = items[i].getWorldBounds();
+            minX[i] = bounds.minX;
+            maxX[i] = bounds.maxX;
+        }
+        sort();
+        sweep();
+        return pairCount;
+    }
+
+    /**
+     * Insertion sort by minX; cheap because the order
+     * from the previous tick is almost right
+     */
+    private void sort() {
+        for (int i = 1; i < itemCount; i++) {
+            CollidableItem item = items[i];
+            float min = minX[i];
+            float max = maxX[i];
+            int j = i - 1;
+            while (j >= 0 && minX[j] > min) {
+                items[j + 1] = items[j];
+                minX[j + 1] = minX[j];
+                maxX[j + 1] = maxX[j];
+                j--;
+            }
+            items[j + 1] = item;
+            minX[j + 1] = min;
+            maxX[j + 1] = max;
+        }
+    }
+
+    private void sweep() {
+        pairCount = 0;
+        for (int i = 0; i < itemCount; i++) {
+            float max = maxX[i];
+            BoundingBox bounds = items[i].getWorldBounds();
+            // Items further along can only overlap while their minX is within our extent
+            for (int j = i + 1; j < itemCount && minX[j] <= max; j++) {
+                if (bounds.intersects(items[j].getWorldBounds())) {
+                    addPair(items[i], items[j]);
+                }
+            }
+        }
+    }
+
+    private void addPair(CollidableItem first, CollidableItem second) {
+        int index = pairCount * 2;
+        if (index == pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        }
+        pairs[index] = first;
+        pairs[index + 1] = second;
+        pairCount++;
+    }
+
+    /**
+     * Get the number of candidate pairs from the last update
+     * @return pair count
+     */
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    /**
+     * Get the first item of a candidate pair
+     * @param pair index below {@link #getPairCount()}
+     * @return the item
+     */
+    public CollidableItem getFirst(int pair) {
+        return pairs[pair * 2];
+    }
+
+    /**
+     * Get the second item of a candidate pair
+     * @param pair index below {@link #getPairCount()}
+     * @return the item
+     */
+    public CollidableItem getSecond(int pair) {
+        return pairs[pair * 2 + 1];
+    }
+
+    /**
+     * Get the number of registered items
+     * @return item count
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+}
@@ -1,77 +1,25 @@
 package com.axiom.engine.item.interfaces;
 
-import java.util.Arrays;
-
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
 
 import com.axiom.engine.item.Item;
+import com.axiom.engine.math.BoundingBox;
 import com.axiom.engine.math.Camera;
-import com.axiom.engine.math.Transformation;
 
 public interface Collidable {
 	
 	/**
+	 * Checks every corner of the other object's hitbox against this object's hitbox.
+	 * Both hitboxes are the cached world bounds, so nothing is allocated.
 	 * @param other object to be compared
 	 * @param camera Camera
 	 * @return if this object contains part of the other object
 	 */
 	public default boolean contains(Collidable other, Camera camera) {
-		boolean flag = false;
-		
-		Vector3f maxOther = new Vector3f(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE);
-		Vector3f minOther = new Vector3f(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
-		
-		Vector3f maxThis = new Vector3f(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE);
-		Vector3f minThis = new Vector3f(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
-		
-		for(Vector4f currentVector : other.getVertexPositions(camera)){
-			maxOther.x = Math.max(maxOther.x , currentVector.x / currentVector.w);
-			maxOther.y = Math.max(maxOther.y, currentVector.y / currentVector.w);
-			maxOther.z = Math.max(maxOther.z, currentVector.z / currentVector.w);
-
-			minOther.x = Math.min(minOther.x , currentVector.x / currentVector.w);
-			minOther.y = Math.min(minOther.y, currentVector.y / currentVector.w);
-			minOther.z = Math.min(minOther.z, currentVector.z / currentVector.w);
-		}
-		
-		//generate every vertex in the other object's hitbox, forming an 8 point hitbox
-		Vector3f[] otherHitboxVert = new Vector3f[8];
-		
-		otherHitboxVert[0] = maxOther;
-		otherHitboxVert[1] = new Vector3f(maxOther.x,maxOther.y, minOther.z); 
-		otherHitboxVert[2] = new Vector3f(maxOther.x,minOther.y, maxOther.z); 
-		otherHitboxVert[3] = new Vector3f(maxOther.x,minOther.y, minOther.z); 
-		otherHitboxVert[4] = new Vector3f(minOther.x,maxOther.y, maxOther.z); 
-		otherHitboxVert[5] = new Vector3f(minOther.x,maxOther.y, minOther.z); 
-		otherHitboxVert[6] = new Vector3f(minOther.x,minOther.y, maxOther.z); 
-		otherHitboxVert[7] = minOther;
-		
-		//find max and min coordinates for this object, forming a 2 point hitbox
-		for(Vector4f currentVector : this.getVertexPositions(camera)){
-			maxThis.x = Math.max(maxThis.x , currentVector.x / currentVector.w);
-			maxThis.y = Math.max(maxThis.y, currentVector.y / currentVector.w);
-			maxThis.z = Math.max(maxThis.z, currentVector.z / currentVector.w);
-
-			minThis.x = Math.min(minThis.x , currentVector.x / currentVector.w);
-			minThis.y = Math.min(minThis.y, currentVector.y / currentVector.w);
-			minThis.z = Math.min(minThis.z, currentVector.z / currentVector.w);
-		}
-		//check every vector in other hitbox to see if it's contained
-		for(Vector3f v : otherHitboxVert){
-			boolean vectorContained = true;
-			vectorContained &= v.x <= maxThis.x && v.x >= minThis.x;
-			vectorContained &= v.y <= maxThis.y && v.y >= minThis.y;
-			vectorContained &= v.z <= maxThis.z && v.z >= minThis.z;
-			//System.out.println(v + "," + vectorContained + "," + flag);
-			flag |= vectorContained;
-		}
-		
-		//System.out.println(minThis + "," + maxThis);
-		//System.out.println(minOther + "," + maxOther);
-		//return true if any point from other object is in this one
-		return flag;
+		//return true if any point from other object's hitbox is in this one
+		return this.getWorldBounds().containsAnyCornerOf(other.getWorldBounds());
 	}
 	
 	
@@ -82,43 +30,38 @@ public interface Collidable {
 	 * @return whether 2 objects collide
 	 */
 	public default boolean collides(Collidable other, Camera camera){
-		return this.contains(other, camera) || other.contains(this, camera);
+		BoundingBox thisBounds = this.getWorldBounds();
+		BoundingBox otherBounds = other.getWorldBounds();
+		return thisBounds.containsAnyCornerOf(otherBounds) || otherBounds.containsAnyCornerOf(thisBounds);
 	}
 	
+	/**
+	 * Allocates an array and a vector per vertex, so keep it out of the frame loop
+	 * @param camera the camera
+	 * @return the mesh vertices in world space, transformed by the item's cached model matrix
+	 */
 	public default Vector4f[] getVertexPositions(Camera camera) {
 		float[] positions = getPositions();//getMesh().getPositions();
 		Vector4f[] vertices = new Vector4f[positions.length / 3];
+		Matrix4f modelMatrix = ((Item)this).getModelMatrix();
 		for (int i = 0; i < positions.length; i += 3) {
-			vertices[i / 3] = new Vector4f(positions[i], positions[i + 1], positions[i + 2], 1);
-		}
-
-		Transformation transformation = Transformation.getInstance();
-
-		Matrix4f viewMatrix = transformation.getViewMatrix();//camera);
-		Matrix4f modelViewMatrix = transformation.buildModelViewMatrix((Item)this, viewMatrix);
-
-		for (int j = 0; j < vertices.length; j++) {
-			//vertices[j] = modelViewMatrix.transform(vertices[j]);	
+			vertices[i / 3] = modelMatrix.transform(new Vector4f(positions[i], positions[i + 1], positions[i + 2], 1));
 		}
 		//System.out.println(Arrays.toString(vertices));
 		return vertices;
 	}
 
+	/**
+	 * Allocates the corners, so keep it out of the frame loop
+	 * @param camera the camera
+	 * @return the 8 corners of the world space hitbox
+	 */
 	public default Vector3f[] genHitbox(Camera camera) {
-		Vector3f maxOther = new Vector3f(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE);
-		Vector3f minOther = new Vector3f(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+		BoundingBox bounds = getWorldBounds();
+		Vector3f maxOther = bounds.getMax(new Vector3f());
+		Vector3f minOther = bounds.getMin(new Vector3f());
 		
-		for(Vector4f currentVector : this.getVertexPositions(camera)){
-			maxOther.x = Math.max(maxOther.x , currentVector.x / currentVector.w);
-			maxOther.y = Math.max(maxOther.y, currentVector.y / currentVector.w);
-			maxOther.z = Math.max(maxOther.z, currentVector.z / currentVector.w);
-
-			minOther.x = Math.min(minOther.x , currentVector.x / currentVector.w);
-			minOther.y = Math.min(minOther.y, currentVector.y / currentVector.w);
-			minOther.z = Math.min(minOther.z, currentVector.z / currentVector.w);
-		}
-		
-		//generate every vertex in the other object's hitbox, forming an 8 point hitbox
+		//generate every vertex in the object's hitbox, forming an 8 point hitbox
 		Vector3f[] otherHitboxVert = new Vector3f[8];
 		
 		otherHitboxVert[0] = maxOther;
@@ -133,27 +76,47 @@ public interface Collidable {
 		return otherHitboxVert;
 	}
 	
+	/**
+	 * Allocates the result; use {@link #min(Vector3f)} in the frame loop
+	 * @param camera the camera
+	 * @return a new vector with the hitbox's min corner
+	 */
 	public default Vector3f min(Camera camera) {
-		Vector3f minOther = new Vector3f(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
-		
-		for(Vector4f currentVector : this.getVertexPositions(camera)){
-			minOther.x = Math.min(minOther.x , currentVector.x / currentVector.w);
-			minOther.y = Math.min(minOther.y, currentVector.y / currentVector.w);
-			minOther.z = Math.min(minOther.z, currentVector.z / currentVector.w);
-		}
-		return minOther;
+		return min(new Vector3f());
 	}
 	
+	/**
+	 * Allocates the result; use {@link #max(Vector3f)} in the frame loop
+	 * @param camera the camera
+	 * @return a new vector with the hitbox's max corner
+	 */
 	public default Vector3f max(Camera camera) {
-		Vector3f maxOther = new Vector3f(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE);
-		
-		for(Vector4f currentVector : this.getVertexPositions(camera)){
-			maxOther.x = Math.max(maxOther.x , currentVector.x / currentVector.w);
-			maxOther.y = Math.max(maxOther.y, currentVector.y / currentVector.w);
-			maxOther.z = Math.max(maxOther.z, currentVector.z / currentVector.w);
-		}
-		
-		return maxOther;
+		return max(new Vector3f());
 	}
+	
+	/**
+	 * @param dest the vector to write to
+	 * @return dest, set to the hitbox's min corner
+	 */
+	public default Vector3f min(Vector3f dest) {
+		return getWorldBounds().getMin(dest);
+	}
+	
+	/**
+	 * @param dest the vector to write to
+	 * @return dest, set to the hitbox's max corner
+	 */
+	public default Vector3f max(Vector3f dest) {
+		return getWorldBounds().getMax(dest);
+	}
+	
+	/**
+	 * @return the world space hitbox, the mesh's local bounds transformed by the model matrix
+	 */
+	public abstract BoundingBox getWorldBounds();
+	
+	/**
+	 * @return the local space vertex positions of the mesh
+	 */
 	public abstract float[] getPositions();
 }
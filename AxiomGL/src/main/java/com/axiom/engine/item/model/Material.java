@@ -16,6 +16,14 @@ public class Material {
 
     private Texture texture;
 
+    private Texture normalMap;
+
+    private Texture specularMap;
+
+    private boolean flatShading;
+
+    private boolean transparent;
+
     public Material() {
         this.ambientColour = DEFAULT_COLOUR;
         this.diffuseColour = DEFAULT_COLOUR;
@@ -87,8 +95,72 @@ public class Material {
     public void setTexture(Texture texture) {
         this.texture = texture;
     }
+
+    public boolean hasNormalMap() {
+        return this.normalMap != null;
+    }
+
+    public Texture getNormalMap() {
+        return normalMap;
+    }
+
+    public void setNormalMap(Texture normalMap) {
+        this.normalMap = normalMap;
+    }
+
+    /**
+     * Tell if the material has a specular map
+     * <br>
+     * Without one the reflectance is used as the
+     * specular strength everywhere.
+     * @return specular map?
+     */
+    public boolean hasSpecularMap() {
+        return this.specularMap != null;
+    }
+
+    public Texture getSpecularMap() {
+        return specularMap;
+    }
+
+    public void setSpecularMap(Texture specularMap) {
+        this.specularMap = specularMap;
+    }
+
+    /**
+     * Tell if the material is lit per face instead of
+     * with smooth vertex normals
+     * @return flat shaded?
+     */
+    public boolean isFlatShading() {
+        return flatShading;
+    }
+
+    public void setFlatShading(boolean flatShading) {
+        this.flatShading = flatShading;
+    }
+
+    /**
+     * Tell if the material is alpha blended
+     * <br>
+     * Transparent materials are drawn after opaque
+     * ones, back to front.
+     * @return transparent?
+     */
+    public boolean isTransparent() {
+        return transparent;
+    }
+
+    public void setTransparent(boolean transparent) {
+        this.transparent = transparent;
+    }
     
     public Material clone() {
-    		return new Material(new Vector4f(ambientColour), new Vector4f(diffuseColour), new Vector4f(specularColour), texture.clone(), reflectance);
+    		Material material = new Material(new Vector4f(ambientColour), new Vector4f(diffuseColour), new Vector4f(specularColour), texture != null ? texture.clone() : null, reflectance);
+    		material.setNormalMap(normalMap != null ? normalMap.clone() : null);
+    		material.setSpecularMap(specularMap != null ? specularMap.clone() : null);
+    		material.setFlatShading(flatShading);
+    		material.setTransparent(transparent);
+    		return material;
     }
 }
@@ -1,18 +1,9 @@
  package com.axiom.engine.item.model;
 
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
-
-import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL13.*;
-import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.*;
-import org.lwjgl.system.MemoryUtil;
-
 import com.axiom.engine.item.Item;
+import com.axiom.engine.math.BoundingBox;
+import com.axiom.engine.render.GLStateCache;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -21,82 +12,29 @@ import org.joml.*;
 public class Mesh {
 
     private static final Vector3f DEFAULT_COLOUR = new Vector3f(1.0f, 1.0f, 1.0f);
-    private final int vaoId;
-    private final List<Integer> vboIdList;
-    private final int vertexCount;
+    private final MeshGeometry geometry;
     private Vector3f colour;
     private Material material;
-    private float[] positions, textCoords, normals;
-    private int[] indices;
+    private boolean released;
     public Mesh(float[] positions, float[] textCoords, float[] normals, int[] indices) {
-    		this.positions = positions;
-    		this.textCoords = textCoords;
-    		this.normals = normals;
-    		this.indices = indices;
-    		
-        FloatBuffer posBuffer = null;
-        FloatBuffer textCoordsBuffer = null;
-        FloatBuffer vecNormalsBuffer = null;
-        IntBuffer indicesBuffer = null;
-        try {
-            colour = DEFAULT_COLOUR;
-            vertexCount = indices.length;
-            vboIdList = new ArrayList();
-
-            vaoId = glGenVertexArrays();
-            glBindVertexArray(vaoId);
-
-            // Position VBO
-            int vboId = glGenBuffers();
-            vboIdList.add(vboId);
-            posBuffer = MemoryUtil.memAllocFloat(positions.length);
-            posBuffer.put(positions).flip();
-            glBindBuffer(GL_ARRAY_BUFFER, vboId);
-            glBufferData(GL_ARRAY_BUFFER, posBuffer, GL_STATIC_DRAW);
-            glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
-
-            // Texture coordinates VBO
-            vboId = glGenBuffers();
-            vboIdList.add(vboId);
-            textCoordsBuffer = MemoryUtil.memAllocFloat(textCoords.length);
-            textCoordsBuffer.put(textCoords).flip();
-            glBindBuffer(GL_ARRAY_BUFFER, vboId);
-            glBufferData(GL_ARRAY_BUFFER, textCoordsBuffer, GL_STATIC_DRAW);
-            glVertexAttribPointer(1, 2, GL_FLOAT, false, 0, 0);
-
-            // Vertex normals VBO
-            vboId = glGenBuffers();
-            vboIdList.add(vboId);
-            vecNormalsBuffer = MemoryUtil.memAllocFloat(normals.length);
-            vecNormalsBuffer.put(normals).flip();
-            glBindBuffer(GL_ARRAY_BUFFER, vboId);
-            glBufferData(GL_ARRAY_BUFFER, vecNormalsBuffer, GL_STATIC_DRAW);
-            glVertexAttribPointer(2, 3, GL_FLOAT, false, 0, 0);
-
-            // Index VBO
-            vboId = glGenBuffers();
-            vboIdList.add(vboId);
-            indicesBuffer = MemoryUtil.memAllocInt(indices.length);
-            indicesBuffer.put(indices).flip();
-            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
-            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL_STATIC_DRAW);
-
-            glBindBuffer(GL_ARRAY_BUFFER, 0);
-            glBindVertexArray(0);
-        } finally {
-            if (posBuffer != null) {
-                MemoryUtil.memFree(posBuffer);
-            }
-            if (textCoordsBuffer != null) {
-                MemoryUtil.memFree(textCoordsBuffer);
-            }
-            if (vecNormalsBuffer != null) {
-                MemoryUtil.memFree(vecNormalsBuffer);
-            }
-            if (indicesBuffer != null) {
-                MemoryUtil.memFree(indicesBuffer);
-            }
-        }
+        this(new MeshGeometry(positions, textCoords, normals, indices));
+    }
+
+    /**
+     * Build a Mesh that draws with existing geometry
+     * <br>
+     * No vertex data is copied or uploaded; the geometry
+     * is shared and acquired until {@link #cleanUp()}.
+     * @param geometry the shared geometry
+     */
+    public Mesh(MeshGeometry geometry) {
+        this.geometry = geometry.acquire();
+        colour = DEFAULT_COLOUR;
+    }
+
+    public Mesh(MeshGeometry geometry, Material material) {
+        this(geometry);
+        this.material = material;
     }
 
     public Material getMaterial() {
@@ -112,46 +50,42 @@ public class Mesh {
         return this.colour;
     }
 
+    public MeshGeometry getGeometry() {
+        return geometry;
+    }
+
     public int getVaoId() {
-        return vaoId;
+        return geometry.getVaoId();
     }
     
     public int getVertexCount() {
-        return vertexCount;
+        return geometry.getVertexCount();
+    }
+
+    public int getIndexCount() {
+        return geometry.getIndexCount();
     }
 
+    /**
+     * Bind the texture and geometry
+     * <br>
+     * Nothing is unbound after drawing; the
+     * {@link GLStateCache} skips binds that are
+     * already in place for the next Mesh.
+     */
     private void initRender() {
         Texture texture = material.getTexture();
-        if (texture != null) {
-            // Activate firs texture bank
-            glActiveTexture(GL_TEXTURE0);
-            // Bind the texture
-            glBindTexture(GL_TEXTURE_2D, texture.getId());
-        }
+        // Untextured meshes sample texture 0 on the first bank
+        GLStateCache.getInstance().bindTexture(0, texture != null ? texture.getId() : 0);
 
         // Draw the mesh
-        glBindVertexArray(getVaoId());
-        glEnableVertexAttribArray(0);
-        glEnableVertexAttribArray(1);
-        glEnableVertexAttribArray(2);
-    }
-
-    private void endRender() {
-        // Restore state
-        glDisableVertexAttribArray(0);
-        glDisableVertexAttribArray(1);
-        glDisableVertexAttribArray(2);
-        glBindVertexArray(0);
-
-        glBindTexture(GL_TEXTURE_2D, 0);
+        geometry.bind();
     }
 
     public void render() {
         initRender();
 
-        glDrawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
-
-        endRender();
+        geometry.render();
     }
 
     public void renderList(List<Item> gameItems, Consumer<Item> consumer) {
@@ -161,69 +95,56 @@ public class Mesh {
             // Set up data requiered by gameItem
             consumer.accept(gameItem);
             // Render this game item
-            glDrawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
+            geometry.render();
         }
-
-        endRender();
     }
 
+    /**
+     * Release this Mesh's reference to its geometry
+     * <br>
+     * GPU buffers and the texture are only deleted
+     * once no other Mesh shares the geometry. Items
+     * may share a Mesh, so calling this again is a no-op.
+     */
     public void cleanUp() {
-        glDisableVertexAttribArray(0);
-
-        // Delete the VBOs
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        for (int vboId : vboIdList) {
-            glDeleteBuffers(vboId);
-        }
-
-        // Delete the texture
-        Texture texture = material.getTexture();
-        if (texture != null) {
-            texture.cleanup();
+        if (releaseGeometry()) {
+            // Delete the texture
+            Texture texture = material.getTexture();
+            if (texture != null) {
+                texture.cleanup();
+            }
         }
-
-        // Delete the VAO
-        glBindVertexArray(0);
-        glDeleteVertexArrays(vaoId);
     }
 
 	public float[] getPositions() {
-		return positions;
+		return geometry.getPositions();
 	}
 
-	public void updatePositions(Vector3f position, Vector3f oldPosition) {
-		for (int i = 0; i < positions.length; i+=3) {
-			positions[i]     -= oldPosition.x - position.x;
-			positions[i + 1] -= oldPosition.y - position.y;
-			positions[i + 2] -= oldPosition.z - position.z;
-		}
+	public BoundingBox getLocalBounds() {
+		return geometry.getLocalBounds();
 	}
 
-	public void mulPositions(float scale) {
-		for (int i = 0; i < positions.length; i+=3) {
-			positions[i]     *= scale;
-			positions[i + 1] *= scale;
-			positions[i + 2] *= scale;
-		}
-	}
-	
+    /**
+     * Release this Mesh's reference to its geometry,
+     * leaving the texture alive
+     */
     public void deleteBuffers() {
-        glDisableVertexAttribArray(0);
+        releaseGeometry();
+    }
 
-        // Delete the VBOs
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        for (int vboId : vboIdList) {
-            glDeleteBuffers(vboId);
+    private boolean releaseGeometry() {
+        if (released) {
+            return false;
         }
-
-        // Delete the VAO
-        glBindVertexArray(0);
-        glDeleteVertexArrays(vaoId);
+        released = true;
+        return geometry.release();
     }
     
+    /**
+     * Make a Mesh sharing this geometry with a copy of the material
+     * @return the new Mesh
+     */
     public Mesh clone() {
-    		Mesh m = new Mesh(positions.clone(), textCoords.clone(), normals.clone(), indices.clone());
-    		m.setMaterial(this.material.clone());
-    		return m;
+    		return new Mesh(geometry, this.material.clone());
     }
-}
\ No newline at end of file
+}
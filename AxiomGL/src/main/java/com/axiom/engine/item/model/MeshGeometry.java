@@ -0,0 +1,431 @@
+package com.axiom.engine.item.model;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL33.*;
+import org.lwjgl.system.MemoryUtil;
+
+import com.axiom.engine.item.Item;
+import com.axiom.engine.math.BoundingBox;
+import com.axiom.engine.math.Transformation;
+import com.axiom.engine.render.GLStateCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joml.Matrix4f;
+
+/**
+ * Vertex data shared between Meshes
+ * <p>
+ * <br>
+ * A MeshGeometry owns the VAO and VBOs for one set of
+ * positions, texture coordinates, normals and indices.
+ * Any number of {@link Mesh} instances can draw with the
+ * same geometry, each with its own {@link Material}.
+ * <br>
+ * The geometry is reference counted: every Mesh acquires
+ * it and the GPU buffers are only deleted when the last
+ * Mesh releases it.
+ * <br>
+ * Geometry made with {@link #createUnloaded} keeps its data
+ * on the CPU only, for running the simulation and the
+ * renderer's culling without a GL context.
+ * </p>
+ */
+public class MeshGeometry {
+
+    private static final int MATRIX_SIZE_FLOATS = 4 * 4;
+    private static final int MATRIX_SIZE_BYTES = MATRIX_SIZE_FLOATS * 4;
+    private static final int VECTOR4F_SIZE_BYTES = 4 * 4;
+    // First attribute location of the per-instance model view matrix (one per column)
+    private static final int INSTANCE_ATTRIB = 3;
+
+    private final int vaoId;
+    private final List<Integer> vboIdList;
+    private final int vertexCount;
+    private final int indexCount;
+    private float[] positions, textCoords, normals;
+    private int[] indices;
+    // Source of the arrays above when built from buffers, copied out on first use
+    private FloatBuffer positionData, textCoordData, normalData;
+    private IntBuffer indexData;
+    private final BoundingBox localBounds;
+    private int instanceVboId;
+    private FloatBuffer instanceDataBuffer;
+    private int referenceCount;
+
+    /**
+     * Upload vertex data to the GPU
+     * <br>
+     * The new geometry has no references; a
+     * {@link Mesh} acquires it when built on top of it.
+     * @param positions vertex positions, 3 floats each
+     * @param textCoords texture coordinates, 2 floats each
+     * @param normals vertex normals, 3 floats each
+     * @param indices triangle indices
+     */
+    public MeshGeometry(float[] positions, float[] textCoords, float[] normals, int[] indices) {
+        this(positions, textCoords, normals, indices, true);
+    }
+
+    /**
+     * Keep vertex data on the CPU without uploading it
+     * <br>
+     * Needs no GL context. Positions, bounds and the arrays
+     * can be read as usual, but the geometry has no VAO and
+     * must never be bound or drawn.
+     * @param positions vertex positions, 3 floats each
+     * @param textCoords texture coordinates, 2 floats each
+     * @param normals vertex normals, 3 floats each
+     * @param indices triangle indices
+     * @return the geometry, with no references
+     */
+    public static MeshGeometry createUnloaded(float[] positions, float[] textCoords, float[] normals, int[] indices) {
+        return new MeshGeometry(positions, textCoords, normals, indices, false);
+    }
+
+    private MeshGeometry(float[] positions, float[] textCoords, float[] normals, int[] indices, boolean upload) {
+        this.positions = positions;
+        this.textCoords = textCoords;
+        this.normals = normals;
+        this.indices = indices;
+        localBounds = new BoundingBox();
+        for (int i = 0; i < positions.length; i += 3) {
+            localBounds.include(positions[i], positions[i + 1], positions[i + 2]);
+        }
+        vertexCount = positions.length / 3;
+        indexCount = indices.length;
+        vboIdList = new ArrayList();
+        if (!upload) {
+            vaoId = 0;
+            return;
+        }
+
+        FloatBuffer posBuffer = null;
+        FloatBuffer textCoordsBuffer = null;
+        FloatBuffer vecNormalsBuffer = null;
+        IntBuffer indicesBuffer = null;
+        try {
+            posBuffer = MemoryUtil.memAllocFloat(positions.length);
+            posBuffer.put(positions).flip();
+            textCoordsBuffer = MemoryUtil.memAllocFloat(textCoords.length);
+            textCoordsBuffer.put(textCoords).flip();
+            vecNormalsBuffer = MemoryUtil.memAllocFloat(normals.length);
+            vecNormalsBuffer.put(normals).flip();
+            indicesBuffer = MemoryUtil.memAllocInt(indices.length);
+            indicesBuffer.put(indices).flip();
+            vaoId = upload(posBuffer, textCoordsBuffer, vecNormalsBuffer, indicesBuffer);
+        } finally {
+            if (posBuffer != null) {
+                MemoryUtil.memFree(posBuffer);
+            }
+            if (textCoordsBuffer != null) {
+                MemoryUtil.memFree(textCoordsBuffer);
+            }
+            if (vecNormalsBuffer != null) {
+                MemoryUtil.memFree(vecNormalsBuffer);
+            }
+            if (indicesBuffer != null) {
+                MemoryUtil.memFree(indicesBuffer);
+            }
+        }
+    }
+
+    /**
+     * Upload vertex data that is already in direct buffers
+     * <br>
+     * The buffers go to the GPU as they are, e.g. straight
+     * from a memory mapped file. They are kept so the arrays
+     * can be read back, but only copied on first use.
+     * @param positions vertex positions, 3 floats each
+     * @param textCoords texture coordinates, 2 floats each
+     * @param normals vertex normals, 3 floats each
+     * @param indices triangle indices
+     * @param localBounds the bounds of the positions
+     */
+    public MeshGeometry(FloatBuffer positions, FloatBuffer textCoords, FloatBuffer normals, IntBuffer indices,
+            BoundingBox localBounds) {
+        this.positionData = positions;
+        this.textCoordData = textCoords;
+        this.normalData = normals;
+        this.indexData = indices;
+        this.localBounds = localBounds;
+        vertexCount = positions.remaining() / 3;
+        indexCount = indices.remaining();
+        vboIdList = new ArrayList();
+        vaoId = upload(positions, textCoords, normals, indices);
+    }
+
+    private int upload(FloatBuffer posBuffer, FloatBuffer textCoordsBuffer, FloatBuffer vecNormalsBuffer,
+            IntBuffer indicesBuffer) {
+        GLStateCache glState = GLStateCache.getInstance();
+        int vao = glGenVertexArrays();
+        glState.bindVertexArray(vao);
+
+        // Position VBO
+        int vboId = glGenBuffers();
+        vboIdList.add(vboId);
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, posBuffer, GL_STATIC_DRAW);
+        glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
+        // Attribute enables are VAO state, set once here rather than per draw
+        glEnableVertexAttribArray(0);
+
+        // Texture coordinates VBO
+        vboId = glGenBuffers();
+        vboIdList.add(vboId);
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, textCoordsBuffer, GL_STATIC_DRAW);
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, 0, 0);
+        glEnableVertexAttribArray(1);
+
+        // Vertex normals VBO
+        vboId = glGenBuffers();
+        vboIdList.add(vboId);
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, vecNormalsBuffer, GL_STATIC_DRAW);
+        glVertexAttribPointer(2, 3, GL_FLOAT, false, 0, 0);
+        glEnableVertexAttribArray(2);
+
+        // Index VBO
+        vboId = glGenBuffers();
+        vboIdList.add(vboId);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL_STATIC_DRAW);
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glState.bindVertexArray(0);
+        return vao;
+    }
+
+    /**
+     * Take a reference to this geometry
+     * @return this geometry
+     */
+    public MeshGeometry acquire() {
+        referenceCount++;
+        return this;
+    }
+
+    /**
+     * Drop a reference to this geometry
+     * <br>
+     * The GPU buffers are deleted when the
+     * last reference is released.
+     * @return true if the buffers were deleted
+     */
+    public boolean release() {
+        if (referenceCount <= 0) {
+            throw new IllegalStateException("MeshGeometry released more times than acquired");
+        }
+        referenceCount--;
+        if (referenceCount == 0) {
+            deleteBuffers();
+            return true;
+        }
+        return false;
+    }
+
+    public int getReferenceCount() {
+        return referenceCount;
+    }
+
+    public int getVaoId() {
+        return vaoId;
+    }
+
+    /**
+     * Tell if the data is on the GPU
+     * @return false for geometry made by {@link #createUnloaded}
+     */
+    public boolean isUploaded() {
+        return vaoId != 0;
+    }
+
+    /**
+     * Get the number of distinct vertices in the buffers
+     * @return vertex count
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Get the number of indices drawn, three per triangle
+     * @return index count
+     */
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    /**
+     * Get the GPU memory taken by the vertex and index buffers
+     * @return size in bytes, not counting instance data
+     */
+    public long getMemorySize() {
+        // Position, texture coordinate and normal floats per vertex, one int per index
+        return 4L * (vertexCount * (3 + 2 + 3) + indexCount);
+    }
+
+    public float[] getPositions() {
+        if (positions == null) {
+            positions = new float[positionData.remaining()];
+            positionData.duplicate().get(positions);
+            positionData = null;
+        }
+        return positions;
+    }
+
+    /**
+     * Get the bounds of the vertices, computed once at load time
+     * @return the local space bounds; do not modify
+     */
+    public BoundingBox getLocalBounds() {
+        return localBounds;
+    }
+
+    public float[] getTextCoords() {
+        if (textCoords == null) {
+            textCoords = new float[textCoordData.remaining()];
+            textCoordData.duplicate().get(textCoords);
+            textCoordData = null;
+        }
+        return textCoords;
+    }
+
+    public float[] getNormals() {
+        if (normals == null) {
+            normals = new float[normalData.remaining()];
+            normalData.duplicate().get(normals);
+            normalData = null;
+        }
+        return normals;
+    }
+
+    public int[] getIndices() {
+        if (indices == null) {
+            indices = new int[indexData.remaining()];
+            indexData.duplicate().get(indices);
+            indexData = null;
+        }
+        return indices;
+    }
+
+    /**
+     * Bind the VAO, which already has its attributes enabled
+     * <br>
+     * Skipped when the VAO is bound already.
+     */
+    public void bind() {
+        GLStateCache.getInstance().bindVertexArray(vaoId);
+    }
+
+    /**
+     * Unbind the VAO
+     */
+    public void unbind() {
+        GLStateCache.getInstance().bindVertexArray(0);
+    }
+
+    /**
+     * Draw the geometry once; it must be bound
+     */
+    public void render() {
+        glDrawElements(GL_TRIANGLES, indexCount, GL_UNSIGNED_INT, 0);
+        GLStateCache.getInstance().countDraw(indexCount, 1);
+    }
+
+    /**
+     * Stream the model view matrix of each item into the instance VBO
+     * @param gameItems the items to draw
+     * @param transformation used to build the model view matrices
+     * @param viewMatrix the current view matrix
+     * @return the number of instances uploaded
+     */
+    public int updateInstanceData(List<Item> gameItems, Transformation transformation, Matrix4f viewMatrix) {
+        int numInstances = gameItems.size();
+        if (numInstances == 0) {
+            return 0;
+        }
+        ensureInstanceCapacity(numInstances);
+
+        instanceDataBuffer.clear();
+        for (int i = 0; i < numInstances; i++) {
+            Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(gameItems.get(i), viewMatrix);
+            modelViewMatrix.get(i * MATRIX_SIZE_FLOATS, instanceDataBuffer);
+        }
+        instanceDataBuffer.limit(numInstances * MATRIX_SIZE_FLOATS);
+
+        // Orphan the previous frame's data and upload this frame's
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVboId);
+        glBufferData(GL_ARRAY_BUFFER, instanceDataBuffer, GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        return numInstances;
+    }
+
+    /**
+     * Draw the uploaded instances; the geometry must be bound
+     * @param numInstances how many instances to draw
+     */
+    public void renderInstanced(int numInstances) {
+        glDrawElementsInstanced(GL_TRIANGLES, indexCount, GL_UNSIGNED_INT, 0, numInstances);
+        GLStateCache.getInstance().countDraw(indexCount, numInstances);
+    }
+
+    private void ensureInstanceCapacity(int numInstances) {
+        if (instanceVboId == 0) {
+            GLStateCache glState = GLStateCache.getInstance();
+            int previousVao = glState.getVertexArray();
+            instanceVboId = glGenBuffers();
+            glState.bindVertexArray(vaoId);
+            glBindBuffer(GL_ARRAY_BUFFER, instanceVboId);
+            // A mat4 attribute takes four consecutive locations, one per column
+            for (int i = 0; i < 4; i++) {
+                glVertexAttribPointer(INSTANCE_ATTRIB + i, 4, GL_FLOAT, false, MATRIX_SIZE_BYTES, i * VECTOR4F_SIZE_BYTES);
+                glVertexAttribDivisor(INSTANCE_ATTRIB + i, 1);
+                glEnableVertexAttribArray(INSTANCE_ATTRIB + i);
+            }
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+            if (previousVao >= 0) {
+                glState.bindVertexArray(previousVao);
+            }
+        }
+        int required = numInstances * MATRIX_SIZE_FLOATS;
+        if (instanceDataBuffer == null) {
+            instanceDataBuffer = MemoryUtil.memAllocFloat(required);
+        } else if (instanceDataBuffer.capacity() < required) {
+            int doubled = instanceDataBuffer.capacity() * 2;
+            instanceDataBuffer = MemoryUtil.memRealloc(instanceDataBuffer, doubled > required ? doubled : required);
+        }
+    }
+
+    private void deleteBuffers() {
+        if (!isUploaded()) {
+            return;
+        }
+        // Delete the VBOs
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        for (int vboId : vboIdList) {
+            glDeleteBuffers(vboId);
+        }
+        if (instanceVboId != 0) {
+            glDeleteBuffers(instanceVboId);
+            instanceVboId = 0;
+        }
+        if (instanceDataBuffer != null) {
+            MemoryUtil.memFree(instanceDataBuffer);
+            instanceDataBuffer = null;
+        }
+
+        // Delete the VAO
+        glDeleteVertexArrays(vaoId);
+        GLStateCache.getInstance().vertexArrayDeleted(vaoId);
+    }
+}
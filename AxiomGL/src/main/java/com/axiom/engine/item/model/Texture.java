@@ -8,6 +8,8 @@ import java.nio.ByteBuffer;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL30.glGenerateMipmap;
 
+import com.axiom.engine.render.GLStateCache;
+
 public class Texture {
 
     private final int id;
@@ -36,7 +38,7 @@ public class Texture {
         // Create a new OpenGL texture 
         this.id = glGenTextures();
         // Bind the texture
-        glBindTexture(GL_TEXTURE_2D, this.id);
+        GLStateCache.getInstance().bindTexture(0, this.id);
 
         // Tell OpenGL how to unpack the RGBA bytes. Each component is 1 byte size
         glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
@@ -51,7 +53,7 @@ public class Texture {
 
 
 	public void bind() {
-        glBindTexture(GL_TEXTURE_2D, id);
+        GLStateCache.getInstance().bindTexture(0, id);
     }
 
     public int getId() {
@@ -61,6 +63,7 @@ public class Texture {
 
     public void cleanup() {
         glDeleteTextures(id);
+        GLStateCache.getInstance().textureDeleted(id);
     }
     
     public int getDiffuse() {
@@ -0,0 +1,220 @@
+package com.axiom.engine.loaders;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import com.axiom.engine.item.model.Mesh;
+import com.axiom.engine.item.model.MeshGeometry;
+import com.axiom.engine.math.BoundingBox;
+
+/**
+ * On-disk cache of parsed models
+ * <p>
+ * <br>
+ * The first time a model is loaded its vertex data is written
+ * to a binary file in the cache directory. Later loads map that
+ * file into memory and upload it without parsing or copying it
+ * onto the Java heap.
+ * <br>
+ * Each file records the length and CRC32 of the model it came
+ * from, so it is rebuilt as soon as the model changes.
+ * <br>
+ * File layout, in native byte order:
+ * <pre>
+ * int   magic, version
+ * long  source length
+ * int   source CRC32
+ * int   position, texture coordinate, normal and index counts
+ * float bounds: min x, y, z, max x, y, z
+ * int   padding
+ * float positions, texture coordinates, normals
+ * int   indices
+ * </pre>
+ * The directory defaults to axiom/meshcache under java.io.tmpdir
+ * and can be changed with the axiom.meshcache.dir property or
+ * {@link #setDirectory(Path)}.
+ * </p>
+ */
+public class MeshCache {
+
+    public static final String DIRECTORY_PROPERTY = "axiom.meshcache.dir";
+
+    // "AXMC", read back in the wrong byte order it does not match
+    private static final int MAGIC = 0x41584D43;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final String EXTENSION = ".mesh";
+
+    private static Path directory = defaultDirectory();
+    private static boolean enabled = true;
+
+    private MeshCache() {
+    }
+
+    public static Path getDirectory() {
+        return directory;
+    }
+
+    public static void setDirectory(Path directory) {
+        MeshCache.directory = directory;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        MeshCache.enabled = enabled;
+    }
+
+    /**
+     * Hash a model's contents
+     * @param source the model file
+     * @param length the number of bytes used
+     * @return the CRC32
+     */
+    static int checksum(byte[] source, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(source, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Load a model from the cache
+     * @param fileName the model resource
+     * @param sourceLength the model's length in bytes
+     * @param sourceCrc the model's {@link #checksum}
+     * @return the Mesh, or null if there is no up to date entry
+     */
+    static Mesh load(String fileName, long sourceLength, int sourceCrc) {
+        Path file = cacheFile(fileName);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return null;
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.nativeOrder());
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION
+                    || map.getLong(8) != sourceLength || map.getInt(16) != sourceCrc) {
+                return null;
+            }
+            int positionCount = map.getInt(20);
+            int textCoordCount = map.getInt(24);
+            int normalCount = map.getInt(28);
+            int indexCount = map.getInt(32);
+            long dataSize = 4L * ((long) positionCount + textCoordCount + normalCount + indexCount);
+            if (positionCount < 0 || textCoordCount < 0 || normalCount < 0 || indexCount < 0
+                    || size != HEADER_SIZE + dataSize) {
+                return null;
+            }
+            BoundingBox bounds = new BoundingBox().set(
+                    map.getFloat(36), map.getFloat(40), map.getFloat(44),
+                    map.getFloat(48), map.getFloat(52), map.getFloat(56));
+
+            int offset = HEADER_SIZE;
+            FloatBuffer positions = slice(map, offset, positionCount).asFloatBuffer();
+            offset += positionCount * 4;
+            FloatBuffer textCoords = slice(map, offset, textCoordCount).asFloatBuffer();
+            offset += textCoordCount * 4;
+            FloatBuffer normals = slice(map, offset, normalCount).asFloatBuffer();
+            offset += normalCount * 4;
+            IntBuffer indices = slice(map, offset, indexCount).asIntBuffer();
+            return new Mesh(new MeshGeometry(positions, textCoords, normals, indices, bounds));
+        } catch (IOException e) {
+            System.out.println("Warning reading mesh cache " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write a model to the cache, replacing any old entry
+     * <br>
+     * Failures are reported and otherwise ignored; the
+     * model is simply parsed again next time.
+     * @param fileName the model resource
+     * @param sourceLength the model's length in bytes
+     * @param sourceCrc the model's {@link #checksum}
+     * @param data the parsed model
+     */
+    static void store(String fileName, long sourceLength, int sourceCrc, MeshData data) {
+        Path file = cacheFile(fileName);
+        BoundingBox bounds = new BoundingBox();
+        float[] positions = data.positions;
+        for (int i = 0; i < positions.length; i += 3) {
+            bounds.include(positions[i], positions[i + 1], positions[i + 2]);
+        }
+
+        int dataSize = 4 * (positions.length + data.textCoords.length + data.normals.length + data.indices.length);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + dataSize).order(ByteOrder.nativeOrder());
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(sourceLength).putInt(sourceCrc)
+                .putInt(positions.length).putInt(data.textCoords.length)
+                .putInt(data.normals.length).putInt(data.indices.length)
+                .putFloat(bounds.minX).putFloat(bounds.minY).putFloat(bounds.minZ)
+                .putFloat(bounds.maxX).putFloat(bounds.maxY).putFloat(bounds.maxZ)
+                .putInt(0);
+        buffer.asFloatBuffer().put(positions).put(data.textCoords).put(data.normals);
+        buffer.position(HEADER_SIZE + 4 * (positions.length + data.textCoords.length + data.normals.length));
+        buffer.asIntBuffer().put(data.indices);
+        buffer.clear();
+
+        Path temp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            // Write beside the target and move into place so readers never see half a file
+            temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } catch (IOException e) {
+            System.out.println("Warning writing mesh cache " + file + ": " + e.getMessage());
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Leave it, it is only a stray temp file
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer slice(MappedByteBuffer map, int offset, int count) {
+        ByteBuffer view = map.duplicate();
+        view.position(offset);
+        view.limit(offset + count * 4);
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+
+    private static Path cacheFile(String fileName) {
+        String name = fileName.startsWith("/") ? fileName.substring(1) : fileName;
+        return directory.resolve(name.replaceAll("[^A-Za-z0-9._-]", "_") + EXTENSION);
+    }
+
+    private static Path defaultDirectory() {
+        String configured = System.getProperty(DIRECTORY_PROPERTY);
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "axiom", "meshcache");
+    }
+}
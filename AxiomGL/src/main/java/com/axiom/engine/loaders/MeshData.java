@@ -0,0 +1,44 @@
+package com.axiom.engine.loaders;
+
+import com.axiom.engine.item.model.Mesh;
+import com.axiom.engine.item.model.MeshGeometry;
+
+/**
+ * Vertex data read from a model file
+ * <p>
+ * <br>
+ * Holds the arrays a {@link Mesh} is built from, so
+ * models can be parsed without a GL context and only
+ * uploaded once the data is complete.
+ * </p>
+ */
+class MeshData {
+
+    final float[] positions;
+    final float[] textCoords;
+    final float[] normals;
+    final int[] indices;
+
+    MeshData(float[] positions, float[] textCoords, float[] normals, int[] indices) {
+        this.positions = positions;
+        this.textCoords = textCoords;
+        this.normals = normals;
+        this.indices = indices;
+    }
+
+    /**
+     * Upload the data
+     * @return a new Mesh
+     */
+    Mesh toMesh() {
+        return new Mesh(positions, textCoords, normals, indices);
+    }
+
+    /**
+     * Wrap the data without uploading it
+     * @return a new Mesh kept on the CPU
+     */
+    Mesh toUnloadedMesh() {
+        return new Mesh(MeshGeometry.createUnloaded(positions, textCoords, normals, indices));
+    }
+}
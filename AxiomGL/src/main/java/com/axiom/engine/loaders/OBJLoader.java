@@ -1,165 +1,92 @@
 package com.axiom.engine.loaders;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
 
-import com.axiom.engine.Utils;
 import com.axiom.engine.item.model.Mesh;
 
-import org.joml.*;
-
 public class OBJLoader {
 
-    public static Mesh loadMesh(String fileName) throws Exception {
-        List<String> lines = Utils.readAllLines(fileName);
-        
-        List<Vector3f> vertices = new ArrayList<>();
-        List<Vector2f> textures = new ArrayList<>();
-        List<Vector3f> normals = new ArrayList<>();
-        List<Face> faces = new ArrayList<>();
-
-        for (String line : lines) {
-            String[] tokens = line.split("\\s+");
-            switch (tokens[0]) {
-                case "v":
-                    // Geometric vertex
-                    Vector3f vec3f = new Vector3f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2]),
-                            Float.parseFloat(tokens[3]));
-                    vertices.add(vec3f);
-                    break;
-                case "vt":
-                    // Texture coordinate
-                    Vector2f vec2f = new Vector2f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2]));
-                    textures.add(vec2f);
-                    break;
-                case "vn":
-                    // Vertex normal
-                    Vector3f vec3fNorm = new Vector3f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2]),
-                            Float.parseFloat(tokens[3]));
-                    normals.add(vec3fNorm);
-                    break;
-                case "f":
-                    Face face = new Face(tokens[1], tokens[2], tokens[3]);
-                    faces.add(face);
-                    break;
-                default:
-                    // Ignore other lines
-                    break;
-            }
-        }
-        return reorderLists(vertices, textures, normals, faces);
-    }
-
-    private static Mesh reorderLists(List<Vector3f> posList, List<Vector2f> textCoordList,
-            List<Vector3f> normList, List<Face> facesList) {
+    private static final int READ_CHUNK = 64 * 1024;
 
-        List<Integer> indices = new ArrayList();
-        // Create position array in the order it has been declared
-        float[] posArr = new float[posList.size() * 3];
-        int i = 0;
-        for (Vector3f pos : posList) {
-            posArr[i * 3] = pos.x;
-            posArr[i * 3 + 1] = pos.y;
-            posArr[i * 3 + 2] = pos.z;
-            i++;
+    /**
+     * Load a model, through the {@link MeshCache} when it is enabled
+     * @param fileName the resource to read
+     * @return the uploaded Mesh
+     * @throws Exception if the file is missing or malformed
+     */
+    public static Mesh loadMesh(String fileName) throws Exception {
+        if (!MeshCache.isEnabled()) {
+            return loadMeshData(fileName).toMesh();
         }
-        float[] textCoordArr = new float[posList.size() * 2];
-        float[] normArr = new float[posList.size() * 3];
-
-        for (Face face : facesList) {
-            IdxGroup[] faceVertexIndices = face.getFaceVertexIndices();
-            for (IdxGroup indValue : faceVertexIndices) {
-                processFaceVertex(indValue, textCoordList, normList,
-                        indices, textCoordArr, normArr);
-            }
+        // The source is read either way, its hash tells if the cache entry is current
+        byte[] source = readResource(fileName);
+        int length = source.length;
+        int crc = MeshCache.checksum(source, length);
+        Mesh mesh = MeshCache.load(fileName, length, crc);
+        if (mesh != null) {
+            return mesh;
         }
-        int[] indicesArr = new int[indices.size()];
-        indicesArr = indices.stream().mapToInt((Integer v) -> v).toArray();
-        Mesh mesh = new Mesh(posArr, textCoordArr, normArr, indicesArr);
-        return mesh;
+        MeshData data = parse(fileName, Channels.newChannel(new ByteArrayInputStream(source)));
+        MeshCache.store(fileName, length, crc, data);
+        return data.toMesh();
     }
 
-    private static void processFaceVertex(IdxGroup indices, List<Vector2f> textCoordList,
-            List<Vector3f> normList, List<Integer> indicesList,
-            float[] texCoordArr, float[] normArr) {
+    /**
+     * Load a model without a GL context
+     * <br>
+     * The file is parsed directly, bypassing the cache, and
+     * the vertex data stays on the CPU; see
+     * {@link com.axiom.engine.item.model.MeshGeometry#createUnloaded}.
+     * @param fileName the resource to read
+     * @return a Mesh that can not be drawn
+     * @throws Exception if the file is missing or malformed
+     */
+    public static Mesh loadUnloadedMesh(String fileName) throws Exception {
+        return loadMeshData(fileName).toUnloadedMesh();
+    }
 
-        // Set index for vertex coordinates
-        int posIndex = indices.idxPos;
-        indicesList.add(posIndex);
+    /**
+     * Parse a model without touching the GPU or the cache
+     * @param fileName the resource to read
+     * @return the vertex data
+     * @throws Exception if the file is missing or malformed
+     */
+    static MeshData loadMeshData(String fileName) throws Exception {
+        return parse(fileName, Channels.newChannel(openResource(fileName)));
+    }
 
-        // Reorder texture coordinates
-        if (indices.idxTextCoord >= 0) {
-            Vector2f textCoord = textCoordList.get(indices.idxTextCoord);
-            texCoordArr[posIndex * 2] = textCoord.x;
-            texCoordArr[posIndex * 2 + 1] = 1 - textCoord.y;
-        }
-        if (indices.idxVecNormal >= 0) {
-            // Reorder vectornormals
-            Vector3f vecNorm = normList.get(indices.idxVecNormal);
-            normArr[posIndex * 3] = vecNorm.x;
-            normArr[posIndex * 3 + 1] = vecNorm.y;
-            normArr[posIndex * 3 + 2] = vecNorm.z;
+    private static MeshData parse(String fileName, ReadableByteChannel source) throws Exception {
+        try (ReadableByteChannel channel = source) {
+            return new ObjParser().parse(channel);
+        } catch (Exception e) {
+            throw new Exception("Could not load model " + fileName + ": " + e.getMessage(), e);
         }
     }
 
-    protected static class Face {
-
-        /**
-         * List of idxGroup groups for a face triangle (3 vertices per face).
-         */
-        private IdxGroup[] idxGroups = new IdxGroup[3];
-
-        public Face(String v1, String v2, String v3) {
-            idxGroups = new IdxGroup[3];
-            // Parse the lines
-            idxGroups[0] = parseLine(v1);
-            idxGroups[1] = parseLine(v2);
-            idxGroups[2] = parseLine(v3);
+    private static InputStream openResource(String fileName) throws Exception {
+        InputStream in = OBJLoader.class.getResourceAsStream(fileName);
+        if (in == null) {
+            throw new Exception("Could not find model " + fileName);
         }
+        return in;
+    }
 
-        private IdxGroup parseLine(String line) {
-            IdxGroup idxGroup = new IdxGroup();
-
-            String[] lineTokens = line.split("/");
-            int length = lineTokens.length;
-            idxGroup.idxPos = Integer.parseInt(lineTokens[0]) - 1;
-            if (length > 1) {
-                // It can be empty if the obj does not define text coords
-                String textCoord = lineTokens[1];
-                idxGroup.idxTextCoord = textCoord.length() > 0 ? Integer.parseInt(textCoord) - 1 : IdxGroup.NO_VALUE;
-                if (length > 2) {
-                    idxGroup.idxVecNormal = Integer.parseInt(lineTokens[2]) - 1;
+    private static byte[] readResource(String fileName) throws Exception {
+        try (InputStream in = openResource(fileName)) {
+            byte[] bytes = new byte[READ_CHUNK];
+            int length = 0;
+            int read;
+            while ((read = in.read(bytes, length, bytes.length - length)) >= 0) {
+                length += read;
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
                 }
             }
-
-            return idxGroup;
-        }
-
-        public IdxGroup[] getFaceVertexIndices() {
-            return idxGroups;
-        }
-    }
-
-    protected static class IdxGroup {
-
-        public static final int NO_VALUE = -1;
-
-        public int idxPos;
-
-        public int idxTextCoord;
-
-        public int idxVecNormal;
-
-        public IdxGroup() {
-            idxPos = NO_VALUE;
-            idxTextCoord = NO_VALUE;
-            idxVecNormal = NO_VALUE;
+            return length == bytes.length ? bytes : Arrays.copyOf(bytes, length);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,380 @@
+package com.axiom.engine.loaders;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming Wavefront OBJ parser
+ * <p>
+ * <br>
+ * Reads the file through a reusable byte buffer one line at
+ * a time and parses numbers straight out of the bytes into
+ * growable primitive arrays, so no Strings or vectors are
+ * created per line.
+ * <br>
+ * Only v, vt, vn and the first three vertices of each f line
+ * are used; everything else is skipped. Every distinct
+ * position, texture coordinate and normal combination the
+ * faces use becomes one vertex, so seams where a position
+ * has several texture coordinates or normals stay intact.
+ * </p>
+ */
+class ObjParser {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_VALUE = -1;
+
+    // Largest mantissa and powers of ten that are exact in a float
+    private static final int MAX_FAST_DIGITS = 8;
+    private static final long MAX_FAST_MANTISSA = 1L << 24;
+    private static final float[] POWERS_OF_TEN = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private byte[] bytes;
+    private int cursor;
+    private int lineEnd;
+    private int lineNumber;
+
+    private float[] positions = new float[INITIAL_CAPACITY * 3];
+    private int positionCount;
+    private float[] textCoords = new float[INITIAL_CAPACITY * 2];
+    private int textCoordCount;
+    private float[] normals = new float[INITIAL_CAPACITY * 3];
+    private int normalCount;
+    // Position, texture coordinate and normal index of every face vertex
+    private int[] faceVertices = new int[INITIAL_CAPACITY * 3];
+    private int faceVertexCount;
+
+    /**
+     * Read a whole model
+     * @param channel the file contents; not closed
+     * @return the parsed vertex data
+     * @throws Exception if the file cannot be read or is malformed
+     */
+    MeshData parse(ReadableByteChannel channel) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        bytes = buffer.array();
+        int start = 0;
+        int scan = 0;
+        int limit = 0;
+        boolean eof = false;
+        while (true) {
+            int newline = scan;
+            while (newline < limit && bytes[newline] != '\n') {
+                newline++;
+            }
+            if (newline < limit) {
+                parseLine(start, newline);
+                start = scan = newline + 1;
+                continue;
+            }
+            scan = limit;
+            if (eof) {
+                if (start < limit) {
+                    parseLine(start, limit);
+                }
+                break;
+            }
+            // Keep the partial line and fill the rest of the buffer
+            if (start > 0) {
+                System.arraycopy(bytes, start, bytes, 0, limit - start);
+                limit -= start;
+                scan -= start;
+                start = 0;
+            }
+            if (limit == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                buffer = ByteBuffer.wrap(bytes);
+            }
+            buffer.limit(bytes.length).position(limit);
+            int read = channel.read(buffer);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+        bytes = null;
+        return buildMeshData();
+    }
+
+    private void parseLine(int start, int end) throws IOException {
+        lineNumber++;
+        if (end - start < 2) {
+            return;
+        }
+        cursor = start + 1;
+        lineEnd = end;
+        byte first = bytes[start];
+        byte second = bytes[start + 1];
+        if (first == 'v') {
+            if (isWhitespace(second)) {
+                // Geometric vertex
+                positions = ensureCapacity(positions, positionCount + 3);
+                positions[positionCount++] = nextFloat();
+                positions[positionCount++] = nextFloat();
+                positions[positionCount++] = nextFloat();
+            } else if (second == 't' && isKeywordEnd(start + 2)) {
+                // Texture coordinate
+                cursor++;
+                textCoords = ensureCapacity(textCoords, textCoordCount + 2);
+                textCoords[textCoordCount++] = nextFloat();
+                textCoords[textCoordCount++] = nextFloat();
+            } else if (second == 'n' && isKeywordEnd(start + 2)) {
+                // Vertex normal
+                cursor++;
+                normals = ensureCapacity(normals, normalCount + 3);
+                normals[normalCount++] = nextFloat();
+                normals[normalCount++] = nextFloat();
+                normals[normalCount++] = nextFloat();
+            }
+        } else if (first == 'f' && isWhitespace(second)) {
+            // Only the first triangle of a polygon is kept
+            faceVertices = ensureCapacity(faceVertices, faceVertexCount + 9);
+            nextFaceVertex();
+            nextFaceVertex();
+            nextFaceVertex();
+        }
+    }
+
+    private boolean isKeywordEnd(int index) {
+        return index >= lineEnd || isWhitespace(bytes[index]);
+    }
+
+    /**
+     * Parse a v, v/t, v//n or v/t/n group into the face vertex array
+     */
+    private void nextFaceVertex() throws IOException {
+        int end = nextToken();
+        int position = parseIndex(end);
+        int textCoord = NO_VALUE;
+        int normal = NO_VALUE;
+        if (cursor < end) {
+            cursor++;
+            if (cursor < end && bytes[cursor] != '/') {
+                textCoord = parseIndex(end);
+            }
+            if (cursor < end) {
+                cursor++;
+                if (cursor < end) {
+                    normal = parseIndex(end);
+                }
+            }
+        }
+        if (cursor != end) {
+            throw error("Malformed face vertex");
+        }
+        faceVertices[faceVertexCount++] = position;
+        faceVertices[faceVertexCount++] = textCoord;
+        faceVertices[faceVertexCount++] = normal;
+    }
+
+    /**
+     * Parse a 1 based index up to the next '/' or the token end
+     * @return the 0 based index
+     */
+    private int parseIndex(int end) throws IOException {
+        boolean negative = false;
+        if (bytes[cursor] == '-' || bytes[cursor] == '+') {
+            negative = bytes[cursor] == '-';
+            cursor++;
+        }
+        int start = cursor;
+        int value = 0;
+        while (cursor < end && bytes[cursor] != '/') {
+            int digit = bytes[cursor] - '0';
+            if (digit < 0 || digit > 9) {
+                throw error("Malformed index");
+            }
+            value = value * 10 + digit;
+            cursor++;
+        }
+        if (cursor == start) {
+            throw error("Missing index");
+        }
+        return (negative ? -value : value) - 1;
+    }
+
+    /**
+     * Skip whitespace and find the end of the next token
+     * @return the index after its last byte; the token starts at cursor
+     */
+    private int nextToken() throws IOException {
+        while (cursor < lineEnd && isWhitespace(bytes[cursor])) {
+            cursor++;
+        }
+        int end = cursor;
+        while (end < lineEnd && !isWhitespace(bytes[end])) {
+            end++;
+        }
+        if (end == cursor) {
+            throw error("Missing value");
+        }
+        return end;
+    }
+
+    private float nextFloat() throws IOException {
+        int end = nextToken();
+        float value = parseFloat(cursor, end);
+        cursor = end;
+        return value;
+    }
+
+    /**
+     * Parse a decimal float in place
+     * <br>
+     * When the digits make a mantissa of at most 2^24 and the
+     * exponent is at most 10 either way, both are exact in a
+     * float, so one float multiply or divide rounds once and
+     * gives the correctly rounded value. Anything else, such as
+     * the 15 digit decimals some exporters write, goes through
+     * {@link Float#parseFloat(String)}; rounding those to a
+     * double first and then to a float can be off by one bit.
+     */
+    private float parseFloat(int start, int end) throws IOException {
+        int i = start;
+        boolean negative = false;
+        if (bytes[i] == '-' || bytes[i] == '+') {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigits = false;
+        while (i < end && isDigit(bytes[i])) {
+            if (digits < MAX_FAST_DIGITS + 1) {
+                mantissa = mantissa * 10 + (bytes[i] - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+            }
+            anyDigits = true;
+            i++;
+        }
+        if (i < end && bytes[i] == '.') {
+            i++;
+            while (i < end && isDigit(bytes[i])) {
+                if (digits < MAX_FAST_DIGITS + 1) {
+                    mantissa = mantissa * 10 + (bytes[i] - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                }
+                anyDigits = true;
+                i++;
+            }
+        }
+        if (anyDigits && i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+                negativeExponent = bytes[i] == '-';
+                i++;
+            }
+            int exponentStart = i;
+            int explicitExponent = 0;
+            while (i < end && isDigit(bytes[i]) && explicitExponent < 1000) {
+                explicitExponent = explicitExponent * 10 + (bytes[i] - '0');
+                i++;
+            }
+            if (i == exponentStart) {
+                return parseFloatSlow(start, end);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (!anyDigits || i != end || digits > MAX_FAST_DIGITS || mantissa > MAX_FAST_MANTISSA
+                || exponent < -10 || exponent > 10) {
+            return parseFloatSlow(start, end);
+        }
+        float value = exponent < 0
+                ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    private float parseFloatSlow(int start, int end) throws IOException {
+        String token = new String(bytes, start, end - start, StandardCharsets.US_ASCII);
+        try {
+            return Float.parseFloat(token);
+        } catch (NumberFormatException e) {
+            throw error("Malformed number '" + token + "'");
+        }
+    }
+
+    /**
+     * Weld the face vertices into the minimal vertex and index arrays
+     */
+    private MeshData buildMeshData() throws IOException {
+        int positionTotal = positionCount / 3;
+        int textCoordTotal = textCoordCount / 2;
+        int normalTotal = normalCount / 3;
+        int indexCount = faceVertexCount / 3;
+        VertexWeldMap weldMap = new VertexWeldMap(Math.min(indexCount, positionTotal * 2));
+        // Sized for the worst case, every face vertex distinct
+        float[] posArr = new float[indexCount * 3];
+        float[] textCoordArr = new float[indexCount * 2];
+        float[] normArr = new float[indexCount * 3];
+        int[] indicesArr = new int[indexCount];
+
+        for (int i = 0, v = 0; i < faceVertexCount; i += 3, v++) {
+            int posIndex = faceVertices[i];
+            int textCoordIndex = faceVertices[i + 1];
+            int normalIndex = faceVertices[i + 2];
+            if (posIndex < 0 || posIndex >= positionTotal
+                    || textCoordIndex >= textCoordTotal || normalIndex >= normalTotal) {
+                throw new IOException("Face vertex " + v + " refers to missing data");
+            }
+            int vertex = weldMap.weld(posIndex, textCoordIndex, normalIndex);
+            indicesArr[v] = vertex;
+            if (vertex < weldMap.size() - 1) {
+                continue;
+            }
+            // First use of this combination, copy its data
+            posArr[vertex * 3] = positions[posIndex * 3];
+            posArr[vertex * 3 + 1] = positions[posIndex * 3 + 1];
+            posArr[vertex * 3 + 2] = positions[posIndex * 3 + 2];
+            if (textCoordIndex >= 0) {
+                textCoordArr[vertex * 2] = textCoords[textCoordIndex * 2];
+                textCoordArr[vertex * 2 + 1] = 1 - textCoords[textCoordIndex * 2 + 1];
+            }
+            if (normalIndex >= 0) {
+                normArr[vertex * 3] = normals[normalIndex * 3];
+                normArr[vertex * 3 + 1] = normals[normalIndex * 3 + 1];
+                normArr[vertex * 3 + 2] = normals[normalIndex * 3 + 2];
+            }
+        }
+        int vertexCount = weldMap.size();
+        return new MeshData(Arrays.copyOf(posArr, vertexCount * 3), Arrays.copyOf(textCoordArr, vertexCount * 2),
+                Arrays.copyOf(normArr, vertexCount * 3), indicesArr);
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " on line " + lineNumber);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        // The same set as \s: space, \t, \n, \u000B, \f, \r
+        return b == ' ' || (b >= '\t' && b <= '\r');
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static float[] ensureCapacity(float[] array, int required) {
+        return required <= array.length ? array : Arrays.copyOf(array, Math.max(required, array.length * 2));
+    }
+
+    private static int[] ensureCapacity(int[] array, int required) {
+        return required <= array.length ? array : Arrays.copyOf(array, Math.max(required, array.length * 2));
+    }
+}
@@ -0,0 +1,231 @@
+package com.axiom.engine.loaders;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL20.GL_LINK_STATUS;
+import static org.lwjgl.opengl.GL20.glGetProgrami;
+import static org.lwjgl.opengl.GL41.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * On-disk cache of linked shader programs
+ * <p>
+ * <br>
+ * After a program is linked from source its driver binary is
+ * saved with glGetProgramBinary. Later launches hand it back
+ * with glProgramBinary and skip compiling and linking.
+ * <br>
+ * Entries are keyed by a hash of the shader sources and the
+ * GL vendor, renderer and version strings, so editing a shader
+ * or changing driver picks a new entry. A driver may still
+ * reject a binary; {@link #load(int, String)} then fails and
+ * the program is built from source and stored again.
+ * <br>
+ * File layout, in native byte order:
+ * <pre>
+ * int  magic, version
+ * int  binary format, binary length
+ * byte binary
+ * </pre>
+ * The directory defaults to axiom/programcache under
+ * java.io.tmpdir and can be changed with the
+ * axiom.programcache.dir property or {@link #setDirectory(Path)}.
+ * Setting axiom.programcache.disabled turns the cache off.
+ * </p>
+ */
+public class ProgramCache {
+
+    public static final String DIRECTORY_PROPERTY = "axiom.programcache.dir";
+    public static final String DISABLED_PROPERTY = "axiom.programcache.disabled";
+
+    // "AXPC", read back in the wrong byte order it does not match
+    private static final int MAGIC = 0x41585043;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final String EXTENSION = ".program";
+
+    private static Path directory = defaultDirectory();
+    private static boolean enabled = !Boolean.getBoolean(DISABLED_PROPERTY);
+
+    private ProgramCache() {
+    }
+
+    public static Path getDirectory() {
+        return directory;
+    }
+
+    public static void setDirectory(Path directory) {
+        ProgramCache.directory = directory;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        ProgramCache.enabled = enabled;
+    }
+
+    /**
+     * Tell if the current context can hand out program binaries
+     * @return true if the cache can be used
+     */
+    static boolean isSupported() {
+        GLCapabilities caps = GL.getCapabilities();
+        if (!caps.OpenGL41 && !caps.GL_ARB_get_program_binary) {
+            return false;
+        }
+        // Some drivers expose the calls but no format to save in
+        return glGetInteger(GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+    }
+
+    /**
+     * Work out the cache key of a program
+     * @param sources the program's shader sources, after includes
+     * @return the key, as a hex string
+     */
+    static String key(String... sources) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-1
+            throw new IllegalStateException(e);
+        }
+        for (String source : sources) {
+            update(digest, source);
+        }
+        update(digest, glGetString(GL_VENDOR));
+        update(digest, glGetString(GL_RENDERER));
+        update(digest, glGetString(GL_VERSION));
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Load a program from the cache
+     * @param programId the program to load into
+     * @param key the program's {@link #key}
+     * @return true if the program is now linked, false to build it from source
+     */
+    static boolean load(int programId, String key) {
+        Path file = cacheFile(key);
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return false;
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.nativeOrder());
+            int format = map.getInt(8);
+            int length = map.getInt(12);
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION || length < 0
+                    || size != HEADER_SIZE + (long) length) {
+                return false;
+            }
+            map.position(HEADER_SIZE);
+            glProgramBinary(programId, format, map.slice());
+        } catch (IOException e) {
+            System.out.println("Warning reading program cache " + file + ": " + e.getMessage());
+            return false;
+        }
+        if (glGetProgrami(programId, GL_LINK_STATUS) == 0) {
+            // Usually a driver update; the fresh build replaces the entry
+            System.out.println("Warning program cache entry " + file + " rejected by the driver");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Write a linked program to the cache, replacing any old entry
+     * <br>
+     * Failures are reported and otherwise ignored; the
+     * program is simply built from source next time.
+     * @param programId the linked program
+     * @param key the program's {@link #key}
+     */
+    static void store(int programId, String key) {
+        Path file = cacheFile(key);
+        int length = glGetProgrami(programId, GL_PROGRAM_BINARY_LENGTH);
+        if (length <= 0) {
+            return;
+        }
+        ByteBuffer buffer = MemoryUtil.memAlloc(HEADER_SIZE + length);
+        Path temp = null;
+        try {
+            int[] written = new int[1];
+            int[] format = new int[1];
+            buffer.position(HEADER_SIZE);
+            glGetProgramBinary(programId, written, format, buffer.slice());
+            buffer.clear();
+            buffer.order(ByteOrder.nativeOrder());
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(format[0]).putInt(written[0]);
+            buffer.position(0).limit(HEADER_SIZE + written[0]);
+
+            Files.createDirectories(file.getParent());
+            // Write beside the target and move into place so readers never see half a file
+            temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } catch (IOException e) {
+            System.out.println("Warning writing program cache " + file + ": " + e.getMessage());
+        } finally {
+            MemoryUtil.memFree(buffer);
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Leave it, it is only a stray temp file
+                }
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String text) {
+        byte[] bytes = (text != null ? text : "").getBytes(StandardCharsets.UTF_8);
+        // Length first, so moving text between sources changes the key
+        digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static Path cacheFile(String key) {
+        return directory.resolve(key + EXTENSION);
+    }
+
+    private static Path defaultDirectory() {
+        String configured = System.getProperty(DIRECTORY_PROPERTY);
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "axiom", "programcache");
+    }
+}
@@ -1,103 +1,406 @@
 package com.axiom.engine.loaders;
 
+import static org.lwjgl.opengl.GL11.GL_TRUE;
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.GL_INVALID_INDEX;
+import static org.lwjgl.opengl.GL31.glGetUniformBlockIndex;
+import static org.lwjgl.opengl.GL31.glUniformBlockBinding;
+import static org.lwjgl.opengl.GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT;
+import static org.lwjgl.opengl.GL41.glProgramParameteri;
 
 import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
 import org.lwjgl.system.MemoryStack;
 
+import com.axiom.engine.Utils;
 import com.axiom.engine.item.light.Light;
 import com.axiom.engine.item.model.Material;
+import com.axiom.engine.render.GLStateCache;
 
+/**
+ * A linked GL shader program and its uniforms
+ * <p>
+ * <br>
+ * {@link #createUniform(String)} resolves a uniform once and
+ * returns an int slot. The setUniform overloads that take a
+ * slot, {@link LightUniform} or {@link MaterialUniform} go
+ * straight to GL; the String overloads look the slot up by
+ * name first and are kept for code outside the draw loop.
+ * <br>
+ * Each slot keeps a copy of the last value sent to it, and a
+ * set that would not change the value is dropped. The counts
+ * of issued and skipped uploads are kept for profiling.
+ * <br>
+ * Shader sources may pull in shared code with a line of the
+ * form <code>#include "file"</code>, resolved against the
+ * shaders resource folder before compiling.
+ * <br>
+ * Sources are only compiled by {@link #link()}, which first
+ * looks the program up in the {@link ProgramCache}. Macros
+ * added with {@link #addDefine(String)} are inserted after the
+ * version line of every shader, so one source can be built
+ * into several variants.
+ * </p>
+ */
 public class ShaderReader {
 
+    /**
+     * Slots of the fields of a light struct uniform
+     */
+    public static class LightUniform {
+        public final int color, position, ambient, falloff, radius;
+
+        private LightUniform(int color, int position, int ambient, int falloff, int radius) {
+            this.color = color;
+            this.position = position;
+            this.ambient = ambient;
+            this.falloff = falloff;
+            this.radius = radius;
+        }
+    }
+
+    /**
+     * Slots of the material uniforms
+     * <br>
+     * The samplers read the texture units given by the
+     * DIFFUSE_UNIT, NORMAL_UNIT and SPECULAR_UNIT constants.
+     */
+    public static class MaterialUniform {
+        public static final int DIFFUSE_UNIT = 0;
+        public static final int NORMAL_UNIT = 1;
+        public static final int SPECULAR_UNIT = 2;
+
+        public final int diffuse, specular, normal, reflectance;
+
+        private MaterialUniform(int diffuse, int specular, int normal, int reflectance) {
+            this.diffuse = diffuse;
+            this.specular = specular;
+            this.normal = normal;
+            this.reflectance = reflectance;
+        }
+    }
+
+    private static final String SHADER_FOLDER = "/shaders/";
+    private static final Pattern INCLUDE = Pattern.compile("(?m)^[ \\t]*#include[ \\t]+\"([^\"]+)\"[ \\t]*\\r?$");
+    private static final int MAX_INCLUDE_DEPTH = 8;
+    // Floats of shadow copy per slot, enough for a mat4
+    private static final int SHADOW_STRIDE = 16;
+
     private final int programId;
+    private final List<String> defines;
+    private String vertexSource;
+    private String fragmentSource;
     private int vertexShaderId;
     private int fragmentShaderId;
+    private boolean fromCache;
+    // Uniform locations by slot, and slots by name
+    private int[] locations;
+    private int uniformCount;
+    // Last value sent to each slot, as raw float bits
+    private int[] shadow;
+    private boolean[] shadowValid;
+    private final float[] matrixScratch;
+    private long issuedUploads;
+    private long skippedUploads;
     private final Map<String, Integer> uniforms;
+    private final Map<String, LightUniform> lightUniforms;
+    private MaterialUniform materialUniform;
     
     public ShaderReader() throws Exception {
         programId = glCreateProgram();
         if (programId == 0) {
             throw new Exception("Could not create Shader");
         }
+        locations = new int[8];
+        shadow = new int[locations.length * SHADOW_STRIDE];
+        shadowValid = new boolean[locations.length];
+        matrixScratch = new float[SHADOW_STRIDE];
         uniforms = new HashMap<>();
+        lightUniforms = new HashMap<>();
+        defines = new ArrayList<>();
+    }
+
+    public int getProgramId() {
+        return programId;
     }
 
-    public void createUniform(String uniformName) throws Exception {
+    /**
+     * Resolve a uniform
+     * @param uniformName the uniform's name in the shader
+     * @return the slot to pass to setUniform
+     * @throws Exception if the program has no such active uniform
+     */
+    public int createUniform(String uniformName) throws Exception {
+        Integer existing = uniforms.get(uniformName);
+        if (existing != null) {
+            return existing;
+        }
         int uniformLocation = glGetUniformLocation(programId,
             uniformName);
         if (uniformLocation < 0) {
             throw new Exception("Could not find uniform:" +
                 uniformName);
         }
-        uniforms.put(uniformName, uniformLocation);
+        return addSlot(uniformName, uniformLocation);
+    }
+
+    /**
+     * Resolve a uniform that some variants compile out
+     * <br>
+     * If the program does not have it the slot is still
+     * returned, and setting it does nothing.
+     * @param uniformName the uniform's name in the shader
+     * @return the slot to pass to setUniform
+     */
+    public int createOptionalUniform(String uniformName) {
+        Integer existing = uniforms.get(uniformName);
+        if (existing != null) {
+            return existing;
+        }
+        // A missing uniform gets location -1, which GL ignores sets to
+        return addSlot(uniformName, glGetUniformLocation(programId, uniformName));
+    }
+
+    private int addSlot(String uniformName, int uniformLocation) {
+        if (uniformCount == locations.length) {
+            locations = Arrays.copyOf(locations, uniformCount * 2);
+            shadow = Arrays.copyOf(shadow, locations.length * SHADOW_STRIDE);
+            shadowValid = Arrays.copyOf(shadowValid, locations.length);
+        }
+        int slot = uniformCount++;
+        locations[slot] = uniformLocation;
+        uniforms.put(uniformName, slot);
+        return slot;
     }
     
-    public void createLightUniform(String uniformName) throws Exception {
-        createUniform(uniformName + ".color");
-        createUniform(uniformName + ".position");
-        createUniform(uniformName + ".ambient");
-        createUniform(uniformName + ".falloff");
-        createUniform(uniformName + ".radius");
+    public LightUniform createLightUniform(String uniformName) throws Exception {
+        LightUniform light = new LightUniform(
+                createUniform(uniformName + ".color"),
+                createUniform(uniformName + ".position"),
+                createUniform(uniformName + ".ambient"),
+                createUniform(uniformName + ".falloff"),
+                createUniform(uniformName + ".radius"));
+        lightUniforms.put(uniformName, light);
+        return light;
     }
 
-    public void createMaterialUniform() throws Exception {
-        createUniform("texDiffuse");
-        createUniform("texSpecular");
-        createUniform("texNormal"); //?
+    public MaterialUniform createMaterialUniform() throws Exception {
+        materialUniform = new MaterialUniform(
+                createUniform("texDiffuse"),
+                createOptionalUniform("texSpecular"),
+                createOptionalUniform("texNormal"),
+                createOptionalUniform("reflectance"));
+        return materialUniform;
     }
     
-    public void setUniform(String uniformName, Matrix4f value) {
+    /**
+     * Attach a uniform block to a binding point
+     * @param blockName the block's name in the shader
+     * @param bindingPoint the binding point its buffer is bound to
+     * @throws Exception if the program has no such active block
+     */
+    public void bindUniformBlock(String blockName, int bindingPoint) throws Exception {
+        int blockIndex = glGetUniformBlockIndex(programId, blockName);
+        if (blockIndex == GL_INVALID_INDEX) {
+            throw new Exception("Could not find uniform block:" + blockName);
+        }
+        glUniformBlockBinding(programId, blockIndex, bindingPoint);
+    }
+
+    public void setUniform(int slot, Matrix4f value) {
+        value.get(matrixScratch, 0);
+        if (unchanged(slot, matrixScratch)) {
+            return;
+        }
         try (MemoryStack stack = MemoryStack.stackPush()) {
             // Dump the matrix into a float buffer
             FloatBuffer fb = stack.mallocFloat(16);
-            value.get(fb);
-            glUniformMatrix4fv(uniforms.get(uniformName), false, fb);
+            fb.put(matrixScratch).flip();
+            glUniformMatrix4fv(locations[slot], false, fb);
+        }
+    }
+    
+    public void setUniform(int slot, Vector3f value) {
+        if (unchanged(slot, value.x, value.y, value.z, 0)) {
+            return;
+        }
+        glUniform3f(locations[slot], value.x, value.y, value.z);
+    }
+    
+    public void setUniform(int slot, int value) {
+        if (unchanged(slot, Float.intBitsToFloat(value), 0, 0, 0)) {
+            return;
+        }
+        glUniform1i(locations[slot], value);
+    }
+    
+    public void setUniform(int slot, Vector4f value) {
+        if (unchanged(slot, value.x, value.y, value.z, value.w)) {
+            return;
+        }
+        glUniform4f(locations[slot], value.x, value.y, value.z, value.w);
+    }
+
+    public void setUniform(int slot, float value) {
+        if (unchanged(slot, value, 0, 0, 0)) {
+            return;
         }
+        glUniform1f(locations[slot], value);
+    }
+    
+    public void setUniform(LightUniform uniform, Light light) {
+        setUniform(uniform.color, light.getColor());
+        setUniform(uniform.position, light.getPosition());
+        setUniform(uniform.ambient, light.getAmbient());
+        setUniform(uniform.falloff, light.getFalloff());
+        setUniform(uniform.radius, light.getRadius());
+    }
+
+    public void setUniform(MaterialUniform uniform, Material material) {
+        // Samplers take a texture unit, not a colour
+        setUniform(uniform.diffuse, MaterialUniform.DIFFUSE_UNIT);
+        setUniform(uniform.specular, MaterialUniform.SPECULAR_UNIT);
+        setUniform(uniform.normal, MaterialUniform.NORMAL_UNIT);
+        setUniform(uniform.reflectance, material.getReflectance());
+    }
+    
+    public void setUniform(String uniformName, Matrix4f value) {
+        setUniform(uniforms.get(uniformName), value);
     }
     
     public void setUniform(String uniformName, Vector3f value) {
-        glUniform3f(uniforms.get(uniformName), value.x, value.y, value.z);
+        setUniform(uniforms.get(uniformName), value);
     }
     
     public void setUniform(String uniformName, int value) {
-        glUniform1i(uniforms.get(uniformName), value);
+        setUniform(uniforms.get(uniformName), value);
     }
     
     public void setUniform(String uniformName, Light light) {
-        setUniform(uniformName + ".color", light.getColor() );
-        setUniform(uniformName + ".position", light.getPosition());
-        setUniform(uniformName + ".ambient", light.getAmbient());
-        setUniform(uniformName + ".falloff", light.getFalloff());
-        setUniform(uniformName + ".radius", light.getRadius());
+        setUniform(lightUniforms.get(uniformName), light);
     }
 
     public void setUniform(Material material) {
-        setUniform("texDiffuse", material.getDiffuseColour());
-        setUniform("texSpecular", material.getSpecularColour());
-        setUniform("texNormal", 0);
+        setUniform(materialUniform, material);
     }
     
     public void setUniform(String uniformName, Vector4f value) {
-        glUniform4f(uniforms.get(uniformName), value.x, value.y, value.z, value.w);
+        setUniform(uniforms.get(uniformName), value);
     }
 
     public void setUniform(String uniformName, float value) {
-        glUniform1f(uniforms.get(uniformName), value);
+        setUniform(uniforms.get(uniformName), value);
     }
     
+    /**
+     * Get the number of uniform uploads sent to GL since the last reset
+     * @return issued upload count
+     */
+    public long getIssuedUploads() {
+        return issuedUploads;
+    }
+
+    /**
+     * Get the number of uniform uploads dropped as unchanged since the last reset
+     * @return skipped upload count
+     */
+    public long getSkippedUploads() {
+        return skippedUploads;
+    }
+
+    public void resetCounters() {
+        issuedUploads = 0;
+        skippedUploads = 0;
+    }
+
+    /**
+     * Forget the last values sent, so the next set of each uniform reaches GL
+     * <br>
+     * Linking resets a program's uniforms, so this is called by {@link #link()}.
+     */
+    public void invalidateUniforms() {
+        Arrays.fill(shadowValid, false);
+    }
+
+    /**
+     * Compare a value with a slot's shadow copy and update the copy
+     * @return true if the value is what GL already has
+     */
+    private boolean unchanged(int slot, float x, float y, float z, float w) {
+        int base = slot * SHADOW_STRIDE;
+        int bx = Float.floatToRawIntBits(x);
+        int by = Float.floatToRawIntBits(y);
+        int bz = Float.floatToRawIntBits(z);
+        int bw = Float.floatToRawIntBits(w);
+        if (shadowValid[slot] && shadow[base] == bx && shadow[base + 1] == by
+                && shadow[base + 2] == bz && shadow[base + 3] == bw) {
+            skippedUploads++;
+            return true;
+        }
+        shadow[base] = bx;
+        shadow[base + 1] = by;
+        shadow[base + 2] = bz;
+        shadow[base + 3] = bw;
+        shadowValid[slot] = true;
+        issuedUploads++;
+        return false;
+    }
+
+    private boolean unchanged(int slot, float[] values) {
+        int base = slot * SHADOW_STRIDE;
+        boolean same = shadowValid[slot];
+        for (int i = 0; i < values.length; i++) {
+            int bits = Float.floatToRawIntBits(values[i]);
+            if (shadow[base + i] != bits) {
+                shadow[base + i] = bits;
+                same = false;
+            }
+        }
+        if (same) {
+            skippedUploads++;
+            return true;
+        }
+        shadowValid[slot] = true;
+        issuedUploads++;
+        return false;
+    }
+
+    /**
+     * Define a macro in every shader of this program
+     * <br>
+     * Takes effect at the next {@link #link()}.
+     * @param name the macro, defined with no value
+     */
+    public void addDefine(String name) {
+        defines.add(name);
+    }
+
+    /**
+     * Set the vertex shader source, compiled by {@link #link()}
+     * @param shaderCode the source
+     * @throws Exception if an included file can't be read
+     */
     public void createVertexShader(String shaderCode) throws Exception {
-        vertexShaderId = createShader(shaderCode, GL_VERTEX_SHADER);
+        vertexSource = resolveIncludes(shaderCode, 0);
     }
 
+    /**
+     * Set the fragment shader source, compiled by {@link #link()}
+     * @param shaderCode the source
+     * @throws Exception if an included file can't be read
+     */
     public void createFragmentShader(String shaderCode) throws Exception {
-        fragmentShaderId = createShader(shaderCode, GL_FRAGMENT_SHADER);
+        fragmentSource = resolveIncludes(shaderCode, 0);
     }
 
     protected int createShader(String shaderCode, int shaderType) throws Exception {
@@ -118,7 +421,103 @@ public class ShaderReader {
         return shaderId;
     }
 
+    /**
+     * Replace each include line with the file it names
+     * @param shaderCode the source
+     * @param depth how many includes deep this source is
+     * @return the source with every include expanded
+     * @throws Exception if a file is missing or includes nest too deep
+     */
+    private static String resolveIncludes(String shaderCode, int depth) throws Exception {
+        Matcher matcher = INCLUDE.matcher(shaderCode);
+        if (!matcher.find()) {
+            return shaderCode;
+        }
+        if (depth == MAX_INCLUDE_DEPTH) {
+            throw new Exception("Shader includes nested too deep at: " + matcher.group(1));
+        }
+        StringBuffer result = new StringBuffer(shaderCode.length());
+        do {
+            String included = Utils.loadResource(SHADER_FOLDER + matcher.group(1));
+            matcher.appendReplacement(result, Matcher.quoteReplacement(resolveIncludes(included, depth + 1)));
+        } while (matcher.find());
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    /**
+     * Link the program, from the program cache if it has it
+     * <br>
+     * Otherwise the shaders are compiled and linked, and
+     * the result is stored in the cache for next time.
+     * @throws Exception if a shader does not compile or the program does not link
+     */
     public void link() throws Exception {
+        String vertexCode = applyDefines(vertexSource);
+        String fragmentCode = applyDefines(fragmentSource);
+        String key = null;
+        if (ProgramCache.isEnabled() && ProgramCache.isSupported()) {
+            key = ProgramCache.key(vertexCode != null ? vertexCode : "",
+                    fragmentCode != null ? fragmentCode : "");
+        }
+        fromCache = key != null && ProgramCache.load(programId, key);
+        if (!fromCache) {
+            linkFromSource(vertexCode, fragmentCode, key != null);
+            if (key != null) {
+                ProgramCache.store(programId, key);
+            }
+        }
+        invalidateUniforms();
+
+        glValidateProgram(programId);
+        if (glGetProgrami(programId, GL_VALIDATE_STATUS) == 0) {
+            System.out.println("Warning validating Shader code: " + glGetShaderInfoLog(programId, 1024));
+        }
+    }
+
+    /**
+     * Tell if the last {@link #link()} was served by the program cache
+     * @return true if nothing was compiled
+     */
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    /**
+     * Insert the defines after a source's version line
+     * @param source the shader source, or null
+     * @return the source with the defines
+     */
+    private String applyDefines(String source) {
+        if (source == null || defines.isEmpty()) {
+            return source;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (String define : defines) {
+            lines.append("#define ").append(define).append('\n');
+        }
+        // #version has to stay the first statement
+        int version = source.indexOf("#version");
+        if (version < 0) {
+            return lines + source;
+        }
+        int lineEnd = source.indexOf('\n', version);
+        if (lineEnd < 0) {
+            return source + '\n' + lines;
+        }
+        return source.substring(0, lineEnd + 1) + lines + source.substring(lineEnd + 1);
+    }
+
+    private void linkFromSource(String vertexCode, String fragmentCode, boolean retrievable) throws Exception {
+        if (vertexCode != null) {
+            vertexShaderId = createShader(vertexCode, GL_VERTEX_SHADER);
+        }
+        if (fragmentCode != null) {
+            fragmentShaderId = createShader(fragmentCode, GL_FRAGMENT_SHADER);
+        }
+        if (retrievable) {
+            glProgramParameteri(programId, GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+        }
         glLinkProgram(programId);
         if (glGetProgrami(programId, GL_LINK_STATUS) == 0) {
             throw new Exception("Error linking Shader code: " + glGetProgramInfoLog(programId, 1024));
@@ -130,25 +529,26 @@ public class ShaderReader {
         if (fragmentShaderId != 0) {
             glDetachShader(programId, fragmentShaderId);
         }
-
-        glValidateProgram(programId);
-        if (glGetProgrami(programId, GL_VALIDATE_STATUS) == 0) {
-            System.out.println("Warning validating Shader code: " + glGetShaderInfoLog(programId, 1024));
-        }
     }
 
     public void bind() {
-        glUseProgram(programId);
+        GLStateCache.getInstance().useProgram(programId);
     }
 
+    /**
+     * End a pass with this program
+     * <br>
+     * The program stays current; the next {@link #bind()}
+     * of another program replaces it directly, so passes
+     * do not flip through program 0.
+     */
     public void unbind() {
-        glUseProgram(0);
     }
 
     public void cleanup() {
-        unbind();
         if (programId != 0) {
             glDeleteProgram(programId);
+            GLStateCache.getInstance().programDeleted(programId);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package com.axiom.engine.loaders;
+
+import java.util.Arrays;
+
+/**
+ * Map from OBJ index triples to welded vertices
+ * <p>
+ * <br>
+ * Each distinct (position, texture coordinate, normal) triple
+ * a face uses becomes one vertex. Keys and values live in flat
+ * int arrays with linear probing, so looking up a face vertex
+ * does not box or allocate.
+ * </p>
+ */
+class VertexWeldMap {
+
+    private static final int EMPTY = -1;
+
+    // Three ints per slot
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Construct a map
+     * @param expected how many vertices are likely to be added
+     */
+    VertexWeldMap(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Find the vertex for a triple, adding it if it is new
+     * @param position position index
+     * @param textCoord texture coordinate index, or -1
+     * @param normal normal index, or -1
+     * @return the existing vertex, or {@link #size()} before the call if it was added
+     */
+    int weld(int position, int textCoord, int normal) {
+        int slot = hash(position, textCoord, normal) & mask;
+        while (values[slot] != EMPTY) {
+            int key = slot * 3;
+            if (keys[key] == position && keys[key + 1] == textCoord && keys[key + 2] == normal) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        int vertex = size++;
+        insert(slot, position, textCoord, normal, vertex);
+        // Keep the load at or below one half
+        if (size * 2 > values.length) {
+            rehash();
+        }
+        return vertex;
+    }
+
+    /**
+     * Get the number of distinct triples
+     * @return vertex count
+     */
+    int size() {
+        return size;
+    }
+
+    private void insert(int slot, int position, int textCoord, int normal, int vertex) {
+        int key = slot * 3;
+        keys[key] = position;
+        keys[key + 1] = textCoord;
+        keys[key + 2] = normal;
+        values[slot] = vertex;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldValues.length * 2);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                int position = oldKeys[i * 3];
+                int textCoord = oldKeys[i * 3 + 1];
+                int normal = oldKeys[i * 3 + 2];
+                int slot = hash(position, textCoord, normal) & mask;
+                while (values[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                insert(slot, position, textCoord, normal, oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity * 3];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private static int hash(int position, int textCoord, int normal) {
+        int h = position * 0x9E3779B1 + textCoord * 0x85EBCA77 + normal * 0xC2B2AE3D;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,166 @@
+package com.axiom.engine.math;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+/**
+ * An axis aligned bounding box
+ * <p>
+ * <br>
+ * The box is stored as six floats so it can be
+ * grown, tested and copied without allocating.
+ * An empty box has its minimum above its maximum.
+ * </p>
+ */
+public class BoundingBox {
+
+    public float minX, minY, minZ;
+    public float maxX, maxY, maxZ;
+
+    /**
+     * Construct an empty box
+     */
+    public BoundingBox() {
+        reset();
+    }
+
+    /**
+     * Empty the box so the next point included defines it
+     * @return this box
+     */
+    public BoundingBox reset() {
+        minX = minY = minZ = Float.POSITIVE_INFINITY;
+        maxX = maxY = maxZ = Float.NEGATIVE_INFINITY;
+        return this;
+    }
+
+    /**
+     * Set the corners of the box
+     * @return this box
+     */
+    public BoundingBox set(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        return this;
+    }
+
+    /**
+     * Copy another box
+     * @param other the box to copy
+     * @return this box
+     */
+    public BoundingBox set(BoundingBox other) {
+        return set(other.minX, other.minY, other.minZ, other.maxX, other.maxY, other.maxZ);
+    }
+
+    /**
+     * Grow the box to contain a point
+     * @return this box
+     */
+    public BoundingBox include(float x, float y, float z) {
+        if (x < minX) minX = x;
+        if (y < minY) minY = y;
+        if (z < minZ) minZ = z;
+        if (x > maxX) maxX = x;
+        if (y > maxY) maxY = y;
+        if (z > maxZ) maxZ = z;
+        return this;
+    }
+
+    /**
+     * Transform the box by a matrix
+     * <br>
+     * The result is the axis aligned box around the
+     * eight transformed corners, computed without
+     * visiting them. dest may be this box.
+     * @param m the matrix (an affine transform)
+     * @param dest where to store the result
+     * @return dest
+     */
+    public BoundingBox transform(Matrix4f m, BoundingBox dest) {
+        if (isEmpty()) {
+            return dest.reset();
+        }
+        float x0 = minX, y0 = minY, z0 = minZ;
+        float x1 = maxX, y1 = maxY, z1 = maxZ;
+        float a, b;
+        float nMinX = m.m30(), nMaxX = m.m30();
+        a = m.m00() * x0; b = m.m00() * x1; if (a < b) { nMinX += a; nMaxX += b; } else { nMinX += b; nMaxX += a; }
+        a = m.m10() * y0; b = m.m10() * y1; if (a < b) { nMinX += a; nMaxX += b; } else { nMinX += b; nMaxX += a; }
+        a = m.m20() * z0; b = m.m20() * z1; if (a < b) { nMinX += a; nMaxX += b; } else { nMinX += b; nMaxX += a; }
+        float nMinY = m.m31(), nMaxY = m.m31();
+        a = m.m01() * x0; b = m.m01() * x1; if (a < b) { nMinY += a; nMaxY += b; } else { nMinY += b; nMaxY += a; }
+        a = m.m11() * y0; b = m.m11() * y1; if (a < b) { nMinY += a; nMaxY += b; } else { nMinY += b; nMaxY += a; }
+        a = m.m21() * z0; b = m.m21() * z1; if (a < b) { nMinY += a; nMaxY += b; } else { nMinY += b; nMaxY += a; }
+        float nMinZ = m.m32(), nMaxZ = m.m32();
+        a = m.m02() * x0; b = m.m02() * x1; if (a < b) { nMinZ += a; nMaxZ += b; } else { nMinZ += b; nMaxZ += a; }
+        a = m.m12() * y0; b = m.m12() * y1; if (a < b) { nMinZ += a; nMaxZ += b; } else { nMinZ += b; nMaxZ += a; }
+        a = m.m22() * z0; b = m.m22() * z1; if (a < b) { nMinZ += a; nMaxZ += b; } else { nMinZ += b; nMaxZ += a; }
+        return dest.set(nMinX, nMinY, nMinZ, nMaxX, nMaxY, nMaxZ);
+    }
+
+    /**
+     * Tell if any of the other box's eight corners lies inside this box
+     * <br>
+     * A corner is inside when each of its coordinates is, and
+     * each coordinate can be picked from the other box's min or
+     * max independently, so three axis checks cover all corners.
+     * @param other the other box
+     * @return true if a corner of other is inside this box
+     */
+    public boolean containsAnyCornerOf(BoundingBox other) {
+        return (inRange(other.minX, minX, maxX) || inRange(other.maxX, minX, maxX))
+                && (inRange(other.minY, minY, maxY) || inRange(other.maxY, minY, maxY))
+                && (inRange(other.minZ, minZ, maxZ) || inRange(other.maxZ, minZ, maxZ));
+    }
+
+    /**
+     * Tell if two boxes overlap, touching counts
+     * @param other the other box
+     * @return overlap?
+     */
+    public boolean intersects(BoundingBox other) {
+        return minX <= other.maxX && maxX >= other.minX
+                && minY <= other.maxY && maxY >= other.minY
+                && minZ <= other.maxZ && maxZ >= other.minZ;
+    }
+
+    private static boolean inRange(float v, float min, float max) {
+        return v <= max && v >= min;
+    }
+
+    /**
+     * Tell if the box contains no points
+     * @return empty?
+     */
+    public boolean isEmpty() {
+        return minX > maxX || minY > maxY || minZ > maxZ;
+    }
+
+    /**
+     * Copy the minimum corner
+     * @param dest where to store it
+     * @return dest
+     */
+    public Vector3f getMin(Vector3f dest) {
+        return dest.set(minX, minY, minZ);
+    }
+
+    /**
+     * Copy the maximum corner
+     * @param dest where to store it
+     * @return dest
+     */
+    public Vector3f getMax(Vector3f dest) {
+        return dest.set(maxX, maxY, maxZ);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + minX + ", " + minY + ", " + minZ + "] - [" + maxX + ", " + maxY + ", " + maxZ + "]";
+    }
+}
@@ -8,14 +8,67 @@ public class Camera {
 
     private final Vector3f rotation;
 
+    // Position and rotation at the start of the last update tick
+    private final Vector3f previousPosition;
+
+    private final Vector3f previousRotation;
+
+    private boolean hasPrevious;
+
     public Camera() {
-        position = new Vector3f(0, 0, 0);
-        rotation = new Vector3f(0, 0, 0);
+        this(new Vector3f(0, 0, 0), new Vector3f(0, 0, 0));
     }
 
     public Camera(Vector3f position, Vector3f rotation) {
         this.position = position;
         this.rotation = rotation;
+        previousPosition = new Vector3f();
+        previousRotation = new Vector3f();
+    }
+
+    /**
+     * Remember the current position and rotation as the previous ones
+     * <br>
+     * Called at the start of every update tick, like
+     * {@link com.axiom.engine.item.Item#storePreviousTransform()}.
+     */
+    public void storePreviousTransform() {
+        previousPosition.set(position);
+        previousRotation.set(rotation);
+        hasPrevious = true;
+    }
+
+    /**
+     * Get the position at the start of the last tick
+     * @return the previous position, or the current one if none was stored
+     */
+    public Vector3f getPreviousPosition() {
+        return hasPrevious ? previousPosition : position;
+    }
+
+    /**
+     * Get the rotation at the start of the last tick
+     * @return the previous rotation, or the current one if none was stored
+     */
+    public Vector3f getPreviousRotation() {
+        return hasPrevious ? previousRotation : rotation;
+    }
+
+    /**
+     * Write the camera blended between its previous and current state
+     * <br>
+     * Rotations turn the short way round, see {@link Transformation#lerpAngle}.
+     * @param alpha how far rendering is past the last tick, from 0 to 1
+     * @param dest the camera to set
+     * @return dest
+     */
+    public Camera interpolate(float alpha, Camera dest) {
+        getPreviousPosition().lerp(position, alpha, dest.position);
+        Vector3f previousRotation = getPreviousRotation();
+        dest.rotation.set(Transformation.lerpAngle(previousRotation.x, rotation.x, alpha),
+                Transformation.lerpAngle(previousRotation.y, rotation.y, alpha),
+                Transformation.lerpAngle(previousRotation.z, rotation.z, alpha));
+        return dest;
     }
 
     public Vector3f getPosition() {
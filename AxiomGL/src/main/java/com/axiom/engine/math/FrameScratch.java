@@ -0,0 +1,123 @@
+package com.axiom.engine.math;
+
+import java.util.Arrays;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+/**
+ * Per-frame arena of JOML temporaries
+ * <p>
+ * <br>
+ * Code that needs a short lived vector or matrix takes one
+ * from here instead of calling new. Everything handed out is
+ * given back at once by {@link #reset()}, which the engine
+ * calls at the end of every frame. Once the arena has grown
+ * to what a frame needs, frames stop allocating.
+ * <br>
+ * A temporary is only valid until the next reset, so never
+ * keep one in a field. Each thread has its own arena; get it
+ * with {@link #current()}.
+ * <br>
+ * Example usage:
+ * <pre>
+ * Vector3f prevPos = FrameScratch.current().vector3().set(camera.getPosition());
+ * </pre>
+ * </p>
+ */
+public class FrameScratch {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final ThreadLocal<FrameScratch> CURRENT = new ThreadLocal<FrameScratch>() {
+        @Override
+        protected FrameScratch initialValue() {
+            return new FrameScratch();
+        }
+    };
+
+    private Vector3f[] vector3s;
+    private Vector4f[] vector4s;
+    private Matrix4f[] matrix4s;
+    private int vector3Count;
+    private int vector4Count;
+    private int matrix4Count;
+
+    protected FrameScratch() {
+        vector3s = new Vector3f[0];
+        vector4s = new Vector4f[0];
+        matrix4s = new Matrix4f[0];
+    }
+
+    /**
+     * Get the calling thread's arena
+     * @return the arena
+     */
+    public static FrameScratch current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Take a zeroed vector
+     * @return a vector valid until {@link #reset()}
+     */
+    public Vector3f vector3() {
+        if (vector3Count == vector3s.length) {
+            vector3s = grow(vector3s);
+            for (int i = vector3Count; i < vector3s.length; i++) {
+                vector3s[i] = new Vector3f();
+            }
+        }
+        return vector3s[vector3Count++].zero();
+    }
+
+    /**
+     * Take a zeroed vector
+     * @return a vector valid until {@link #reset()}
+     */
+    public Vector4f vector4() {
+        if (vector4Count == vector4s.length) {
+            vector4s = grow(vector4s);
+            for (int i = vector4Count; i < vector4s.length; i++) {
+                vector4s[i] = new Vector4f();
+            }
+        }
+        return vector4s[vector4Count++].zero();
+    }
+
+    /**
+     * Take an identity matrix
+     * @return a matrix valid until {@link #reset()}
+     */
+    public Matrix4f matrix4() {
+        if (matrix4Count == matrix4s.length) {
+            matrix4s = grow(matrix4s);
+            for (int i = matrix4Count; i < matrix4s.length; i++) {
+                matrix4s[i] = new Matrix4f();
+            }
+        }
+        return matrix4s[matrix4Count++].identity();
+    }
+
+    /**
+     * Give back every temporary handed out since the last reset
+     */
+    public void reset() {
+        vector3Count = 0;
+        vector4Count = 0;
+        matrix4Count = 0;
+    }
+
+    /**
+     * Get the number of temporaries handed out since the last reset
+     * @return temporaries in use
+     */
+    public int getUsed() {
+        return vector3Count + vector4Count + matrix4Count;
+    }
+
+    private static <T> T[] grow(T[] pool) {
+        return Arrays.copyOf(pool, Math.max(INITIAL_CAPACITY, pool.length * 2));
+    }
+}
@@ -8,7 +8,6 @@ import com.axiom.engine.item.Item;
 public class Transformation {
 
     private final Matrix4f projectionMatrix;
-    private final Matrix4f modelMatrix;
     private final Matrix4f modelViewMatrix;
     private final Matrix4f viewMatrix;
     private final Matrix4f orthoMatrix;
@@ -17,7 +16,6 @@ public class Transformation {
     private static Transformation instance;
     protected Transformation() {
         projectionMatrix = new Matrix4f();
-        modelMatrix      = new Matrix4f();
         modelViewMatrix  = new Matrix4f();
         viewMatrix       = new Matrix4f();
         orthoMatrix      = new Matrix4f();
@@ -49,8 +47,8 @@ public class Transformation {
         
         viewMatrix.identity();
         // First do the rotation so camera rotates over its position
-        viewMatrix.rotate((float)Math.toRadians(rotation.x), new Vector3f(1, 0, 0))
-                .rotate((float)Math.toRadians(rotation.y), new Vector3f(0, 1, 0));
+        viewMatrix.rotateX((float)Math.toRadians(rotation.x))
+                .rotateY((float)Math.toRadians(rotation.y));
         // Then do the translation
         viewMatrix.translate(-cameraPos.x, -cameraPos.y, -cameraPos.z);
         return viewMatrix;
@@ -62,26 +60,29 @@ public class Transformation {
         return orthoMatrix;
     }
     
+    /**
+     * Blend two angles the short way round
+     * <br>
+     * A plain lerp from 350 to 10 degrees sweeps back through
+     * 180; this goes forward through 0 instead.
+     * @param from the start angle, in degrees
+     * @param to the end angle, in degrees
+     * @param alpha how far to go, from 0 to 1
+     * @return the blended angle, in degrees, not wrapped
+     */
+    public static float lerpAngle(float from, float to, float alpha) {
+        float delta = ((to - from) % 360 + 540) % 360 - 180;
+        return from + delta * alpha;
+    }
+
     public Matrix4f buildModelViewMatrix(Item gameItem, Matrix4f viewMatrix) {
-        Vector3f rotation = gameItem.getRotation();
-        modelMatrix.identity().translate(gameItem.getPosition()).
-                rotateX((float)Math.toRadians(-rotation.x)).
-                rotateY((float)Math.toRadians(-rotation.y)).
-                rotateZ((float)Math.toRadians(-rotation.z)).
-                scale(gameItem.getScale());
         modelViewMatrix.set(viewMatrix);
-        return modelViewMatrix.mul(modelMatrix);
+        return modelViewMatrix.mul(gameItem.getRenderMatrix());
     }
 
     public Matrix4f buildOrtoProjModelMatrix(Item gameItem, Matrix4f orthoMatrix) {
-        Vector3f rotation = gameItem.getRotation();
-        modelMatrix.identity().translate(gameItem.getPosition()).
-                rotateX((float) Math.toRadians(-rotation.x)).
-                rotateY((float) Math.toRadians(-rotation.y)).
-                rotateZ((float) Math.toRadians(-rotation.z)).
-                scale(gameItem.getScale());
         orthoModelMatrix.set(orthoMatrix);
-        orthoModelMatrix.mul(modelMatrix);
+        orthoModelMatrix.mul(gameItem.getModelMatrix());
         return orthoModelMatrix;
     }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.axiom.engine.render;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.glBindBufferBase;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+
+import java.nio.FloatBuffer;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import com.axiom.engine.item.light.Light;
+
+/**
+ * Uniform buffer holding the data every program needs each frame
+ * <p>
+ * <br>
+ * Projection, view, the hud's orthographic projection, the
+ * camera position and the scene light are written once per
+ * frame into one std140 block and bound to {@link #BINDING}.
+ * Programs declare the block by including
+ * shaders/frame_uniforms.glsl and attach it with
+ * {@link com.axiom.engine.loaders.ShaderReader#bindUniformBlock(String, int)},
+ * instead of each uploading its own copy.
+ * <br>
+ * std140 layout, offsets in bytes:
+ * <pre>
+ * 0   mat4 projection
+ * 64  mat4 view
+ * 128 mat4 ortho
+ * 192 vec4 cameraPosition
+ * 208 vec4 lightPosition, in view space
+ * 224 vec4 lightColor
+ * 240 vec4 lightAmbient
+ * 256 vec4 lightAttenuation: falloff, radius
+ * </pre>
+ * </p>
+ */
+public class FrameUniforms {
+
+    public static final String BLOCK_NAME = "FrameUniforms";
+    public static final int BINDING = 0;
+
+    // Offsets in floats
+    private static final int PROJECTION = 0;
+    private static final int VIEW = 16;
+    private static final int ORTHO = 32;
+    private static final int CAMERA_POSITION = 48;
+    private static final int LIGHT_POSITION = 52;
+    private static final int LIGHT_COLOR = 56;
+    private static final int LIGHT_AMBIENT = 60;
+    private static final int LIGHT_ATTENUATION = 64;
+    private static final int SIZE = 68;
+
+    private final int bufferId;
+    private final FloatBuffer data;
+
+    /**
+     * Create the buffer and bind it to {@link #BINDING}
+     */
+    public FrameUniforms() {
+        data = MemoryUtil.memAllocFloat(SIZE);
+        bufferId = glGenBuffers();
+        glBindBuffer(GL_UNIFORM_BUFFER, bufferId);
+        glBufferData(GL_UNIFORM_BUFFER, SIZE * 4L, GL_DYNAMIC_DRAW);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+        glBindBufferBase(GL_UNIFORM_BUFFER, BINDING, bufferId);
+    }
+
+    /**
+     * Fill the block for this frame
+     * @param projection the perspective projection
+     * @param view the view matrix
+     * @param ortho the hud's orthographic projection
+     * @param cameraPosition the camera position in world space
+     * @param light the scene light, its position in world space
+     */
+    public void update(Matrix4f projection, Matrix4f view, Matrix4f ortho, Vector3f cameraPosition, Light light) {
+        projection.get(PROJECTION, data);
+        view.get(VIEW, data);
+        ortho.get(ORTHO, data);
+        put(CAMERA_POSITION, cameraPosition.x, cameraPosition.y, cameraPosition.z, 1);
+
+        // Light position goes to view space here rather than per vertex
+        Vector3f p = light.getPosition();
+        put(LIGHT_POSITION,
+                view.m00() * p.x + view.m10() * p.y + view.m20() * p.z + view.m30(),
+                view.m01() * p.x + view.m11() * p.y + view.m21() * p.z + view.m31(),
+                view.m02() * p.x + view.m12() * p.y + view.m22() * p.z + view.m32(),
+                1);
+        Vector3f color = light.getColor();
+        put(LIGHT_COLOR, color.x, color.y, color.z, 1);
+        Vector3f ambient = light.getAmbient();
+        put(LIGHT_AMBIENT, ambient.x, ambient.y, ambient.z, 1);
+        put(LIGHT_ATTENUATION, light.getFalloff(), light.getRadius(), 0, 0);
+
+        glBindBuffer(GL_UNIFORM_BUFFER, bufferId);
+        glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+    }
+
+    /**
+     * Delete the buffer
+     */
+    public void cleanup() {
+        glDeleteBuffers(bufferId);
+        MemoryUtil.memFree(data);
+    }
+
+    private void put(int offset, float x, float y, float z, float w) {
+        data.put(offset, x).put(offset + 1, y).put(offset + 2, z).put(offset + 3, w);
+    }
+}
@@ -0,0 +1,358 @@
+package com.axiom.engine.render;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+import java.util.Arrays;
+
+/**
+ * Shadow copy of the GL state the engine changes
+ * <p>
+ * <br>
+ * Binds and enables go through here instead of straight to
+ * GL. The cache remembers the bound program, VAO, 2D texture
+ * per unit, blend, depth test, depth writes, face culling and
+ * viewport, and drops any call that would not change them.
+ * <br>
+ * GL state belongs to the context, so the cache must only be
+ * used from the thread that owns it. Anything that changes
+ * tracked state behind the cache's back must call
+ * {@link #invalidate()}; deleting a tracked object must be
+ * reported, since GL unbinds it and may reuse the name.
+ * <br>
+ * Draw calls are not state, but every draw site reports
+ * itself through {@link #countDraw(int, int)} so the same
+ * per-frame counters cover them.
+ * <br>
+ * In debug mode every call first reads the real state back
+ * with glGet and throws if the cache disagrees. That stalls
+ * the pipeline, so it is for tracking down bugs only.
+ * </p>
+ */
+public class GLStateCache {
+
+    public static final int MAX_TEXTURE_UNITS = 16;
+
+    private static final int UNKNOWN = -1;
+
+    // Capability slots
+    private static final int BLEND = 0;
+    private static final int DEPTH_TEST = 1;
+    private static final int CULL_FACE = 2;
+    private static final int[] CAPABILITIES = { GL_BLEND, GL_DEPTH_TEST, GL_CULL_FACE };
+
+    private static GLStateCache instance;
+
+    private int program;
+    private int vertexArray;
+    private int activeTextureUnit;
+    private final int[] textures;
+    private final int[] capabilities;
+    private int depthMask;
+    private final int[] viewport;
+
+    private boolean debug;
+    private Thread owner;
+    private long issuedCalls;
+    private long skippedCalls;
+    private long drawCalls;
+    private long triangles;
+
+    protected GLStateCache() {
+        textures = new int[MAX_TEXTURE_UNITS];
+        capabilities = new int[CAPABILITIES.length];
+        viewport = new int[4];
+        invalidate();
+    }
+
+    public static GLStateCache getInstance() {
+        if (instance == null) instance = new GLStateCache();
+        return instance;
+    }
+
+    /**
+     * Forget everything, so the next call of each kind reaches GL
+     * <br>
+     * Call after creating a context or after code outside
+     * the cache changed tracked state.
+     */
+    public void invalidate() {
+        program = UNKNOWN;
+        vertexArray = UNKNOWN;
+        activeTextureUnit = UNKNOWN;
+        Arrays.fill(textures, UNKNOWN);
+        Arrays.fill(capabilities, UNKNOWN);
+        depthMask = UNKNOWN;
+        viewport[0] = UNKNOWN;
+        owner = null;
+    }
+
+    /**
+     * Make a program current
+     * @param programId the program, 0 for none
+     */
+    public void useProgram(int programId) {
+        if (debug) {
+            verify(glGetInteger(GL_CURRENT_PROGRAM), program, "program");
+        }
+        if (programId == program) {
+            skippedCalls++;
+            return;
+        }
+        glUseProgram(programId);
+        program = programId;
+        issuedCalls++;
+    }
+
+    /**
+     * Bind a vertex array object
+     * @param vaoId the VAO, 0 for none
+     */
+    public void bindVertexArray(int vaoId) {
+        if (debug) {
+            verify(glGetInteger(GL_VERTEX_ARRAY_BINDING), vertexArray, "vertex array");
+        }
+        if (vaoId == vertexArray) {
+            skippedCalls++;
+            return;
+        }
+        glBindVertexArray(vaoId);
+        vertexArray = vaoId;
+        issuedCalls++;
+    }
+
+    /**
+     * Select the texture unit later binds apply to
+     * @param unit the unit index, from 0
+     */
+    public void activeTexture(int unit) {
+        if (debug) {
+            verify(glGetInteger(GL_ACTIVE_TEXTURE) - GL_TEXTURE0, activeTextureUnit, "active texture unit");
+        }
+        if (unit == activeTextureUnit) {
+            skippedCalls++;
+            return;
+        }
+        glActiveTexture(GL_TEXTURE0 + unit);
+        activeTextureUnit = unit;
+        issuedCalls++;
+    }
+
+    /**
+     * Bind a 2D texture to a unit
+     * @param unit the unit index, from 0; it is left active
+     * @param textureId the texture, 0 for none
+     */
+    public void bindTexture(int unit, int textureId) {
+        if (debug) {
+            // Checks the active unit before it is switched
+            verify(glGetInteger(GL_ACTIVE_TEXTURE) - GL_TEXTURE0, activeTextureUnit, "active texture unit");
+        }
+        if (textureId == textures[unit] && unit == activeTextureUnit) {
+            skippedCalls++;
+            return;
+        }
+        activeTexture(unit);
+        if (debug) {
+            verify(glGetInteger(GL_TEXTURE_BINDING_2D), textures[unit], "texture on unit " + unit);
+        }
+        if (textureId == textures[unit]) {
+            skippedCalls++;
+            return;
+        }
+        glBindTexture(GL_TEXTURE_2D, textureId);
+        textures[unit] = textureId;
+        issuedCalls++;
+    }
+
+    public void setBlend(boolean enabled) {
+        setCapability(BLEND, enabled);
+    }
+
+    public void setDepthTest(boolean enabled) {
+        setCapability(DEPTH_TEST, enabled);
+    }
+
+    public void setCullFace(boolean enabled) {
+        setCapability(CULL_FACE, enabled);
+    }
+
+    /**
+     * Turn depth buffer writes on or off
+     * @param enabled write depth?
+     */
+    public void setDepthMask(boolean enabled) {
+        int value = enabled ? 1 : 0;
+        if (debug) {
+            verify(glGetBoolean(GL_DEPTH_WRITEMASK) ? 1 : 0, depthMask, "depth mask");
+        }
+        if (value == depthMask) {
+            skippedCalls++;
+            return;
+        }
+        glDepthMask(enabled);
+        depthMask = value;
+        issuedCalls++;
+    }
+
+    /**
+     * Set the viewport rectangle
+     */
+    public void viewport(int x, int y, int width, int height) {
+        if (debug && viewport[0] != UNKNOWN) {
+            int[] actual = new int[4];
+            glGetIntegerv(GL_VIEWPORT, actual);
+            if (!Arrays.equals(actual, viewport)) {
+                throw outOfSync("viewport", Arrays.toString(actual), Arrays.toString(viewport));
+            }
+        }
+        if (viewport[0] == x && viewport[1] == y && viewport[2] == width && viewport[3] == height) {
+            skippedCalls++;
+            return;
+        }
+        glViewport(x, y, width, height);
+        viewport[0] = x;
+        viewport[1] = y;
+        viewport[2] = width;
+        viewport[3] = height;
+        issuedCalls++;
+    }
+
+    /**
+     * Report a deleted program; GL unbinds it if it was current
+     * @param programId the deleted program
+     */
+    public void programDeleted(int programId) {
+        if (program == programId) {
+            program = 0;
+        }
+    }
+
+    /**
+     * Report a deleted VAO; GL unbinds it if it was bound
+     * @param vaoId the deleted VAO
+     */
+    public void vertexArrayDeleted(int vaoId) {
+        if (vertexArray == vaoId) {
+            vertexArray = 0;
+        }
+    }
+
+    /**
+     * Report a deleted texture; GL unbinds it from every unit
+     * @param textureId the deleted texture
+     */
+    public void textureDeleted(int textureId) {
+        for (int i = 0; i < textures.length; i++) {
+            if (textures[i] == textureId) {
+                textures[i] = 0;
+            }
+        }
+    }
+
+    public int getProgram() {
+        return program;
+    }
+
+    public int getVertexArray() {
+        return vertexArray;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Check the cache against real GL state on every call
+     * @param debug validate?
+     */
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    /**
+     * Get the number of calls passed on to GL since the last reset
+     * @return issued call count
+     */
+    public long getIssuedCalls() {
+        return issuedCalls;
+    }
+
+    /**
+     * Get the number of calls dropped as redundant since the last reset
+     * @return skipped call count
+     */
+    public long getSkippedCalls() {
+        return skippedCalls;
+    }
+
+    /**
+     * Record a triangle draw call
+     * @param indexCount indices drawn per instance
+     * @param instances instances drawn, 1 if not instanced
+     */
+    public void countDraw(int indexCount, int instances) {
+        drawCalls++;
+        triangles += (long) (indexCount / 3) * instances;
+    }
+
+    /**
+     * Get the number of draw calls since the last reset
+     * @return draw call count
+     */
+    public long getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * Get the number of triangles drawn since the last reset
+     * @return triangle count
+     */
+    public long getTriangles() {
+        return triangles;
+    }
+
+    public void resetCounters() {
+        issuedCalls = 0;
+        skippedCalls = 0;
+        drawCalls = 0;
+        triangles = 0;
+    }
+
+    private void setCapability(int slot, boolean enabled) {
+        int value = enabled ? 1 : 0;
+        if (debug) {
+            verify(glIsEnabled(CAPABILITIES[slot]) ? 1 : 0, capabilities[slot], "capability " + CAPABILITIES[slot]);
+        }
+        if (value == capabilities[slot]) {
+            skippedCalls++;
+            return;
+        }
+        if (enabled) {
+            glEnable(CAPABILITIES[slot]);
+        } else {
+            glDisable(CAPABILITIES[slot]);
+        }
+        capabilities[slot] = value;
+        issuedCalls++;
+    }
+
+    private void verify(int actual, int cached, String what) {
+        Thread current = Thread.currentThread();
+        if (owner == null) {
+            owner = current;
+        } else if (owner != current) {
+            throw new IllegalStateException("GL state cache used from " + current.getName()
+                    + " but owned by " + owner.getName());
+        }
+        if (cached != UNKNOWN && actual != cached) {
+            throw outOfSync(what, String.valueOf(actual), String.valueOf(cached));
+        }
+    }
+
+    private static IllegalStateException outOfSync(String what, String actual, String cached) {
+        return new IllegalStateException("GL state cache out of sync: " + what + " is " + actual + ", cached " + cached);
+    }
+}
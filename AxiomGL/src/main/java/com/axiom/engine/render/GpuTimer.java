@@ -0,0 +1,117 @@
+package com.axiom.engine.render;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL33.*;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+/**
+ * Measures how long each render pass takes on the GPU
+ * <p>
+ * <br>
+ * Each pass is wrapped in a GL_TIME_ELAPSED query. Reading
+ * a result right away would wait for the GPU to finish the
+ * frame, so every pass has a ring of {@link #LATENCY} queries
+ * and a query is only read back when its slot comes round
+ * again, by which time the GPU is long done with it. If a
+ * result is still not available then, that pass simply goes
+ * untimed for the frame rather than waiting.
+ * <br>
+ * Timer queries need GL 3.3 or ARB_timer_query; without them
+ * every call does nothing.
+ * </p>
+ */
+public class GpuTimer {
+
+    public static final int LATENCY = 4;
+
+    private static final RenderStats.Pass[] PASSES = RenderStats.Pass.values();
+
+    private final boolean supported;
+    // Query names, by ring slot then pass
+    private final int[][] queries;
+    private final boolean[][] pending;
+    private int slot;
+    private RenderStats.Pass activePass;
+
+    /**
+     * Create the query ring, if timer queries are supported
+     * @param passes the number of passes to time
+     */
+    public GpuTimer(int passes) {
+        supported = isSupported();
+        queries = new int[LATENCY][passes];
+        pending = new boolean[LATENCY][passes];
+        if (supported) {
+            for (int[] ring : queries) {
+                glGenQueries(ring);
+            }
+        }
+    }
+
+    /**
+     * Tell if the current context has timer queries
+     * @return true on GL 3.3 or with ARB_timer_query
+     */
+    public static boolean isSupported() {
+        GLCapabilities caps = GL.getCapabilities();
+        return caps.OpenGL33 || caps.GL_ARB_timer_query;
+    }
+
+    /**
+     * Move to the next ring slot and publish the results it holds
+     * @param stats where the GPU times go
+     */
+    public void beginFrame(RenderStats stats) {
+        if (!supported) {
+            return;
+        }
+        slot = (slot + 1) % LATENCY;
+        for (int i = 0; i < queries[slot].length; i++) {
+            if (pending[slot][i] && glGetQueryObjecti(queries[slot][i], GL_QUERY_RESULT_AVAILABLE) != 0) {
+                stats.setGpuTime(PASSES[i], glGetQueryObjecti64(queries[slot][i], GL_QUERY_RESULT));
+                pending[slot][i] = false;
+            }
+        }
+    }
+
+    /**
+     * Start timing a pass
+     * <br>
+     * Passes can not nest; end one before beginning the next.
+     * @param pass the pass
+     */
+    public void begin(RenderStats.Pass pass) {
+        int i = pass.ordinal();
+        // A query still in flight from LATENCY frames ago can not be reused yet
+        if (!supported || pending[slot][i]) {
+            return;
+        }
+        glBeginQuery(GL_TIME_ELAPSED, queries[slot][i]);
+        activePass = pass;
+    }
+
+    /**
+     * Stop timing the pass begun last
+     */
+    public void end() {
+        if (activePass == null) {
+            return;
+        }
+        glEndQuery(GL_TIME_ELAPSED);
+        pending[slot][activePass.ordinal()] = true;
+        activePass = null;
+    }
+
+    /**
+     * Delete the queries
+     */
+    public void cleanup() {
+        if (supported) {
+            for (int[] ring : queries) {
+                glDeleteQueries(ring);
+            }
+        }
+    }
+}
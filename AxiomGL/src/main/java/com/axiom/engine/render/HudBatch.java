@@ -0,0 +1,358 @@
+package com.axiom.engine.render;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import org.joml.Matrix4f;
+import org.joml.Vector4f;
+import org.lwjgl.system.MemoryUtil;
+
+import com.axiom.engine.hud.FontTexture;
+import com.axiom.engine.hud.TextBuffer;
+import com.axiom.engine.item.Item;
+import com.axiom.engine.item.model.Material;
+import com.axiom.engine.item.model.Mesh;
+import com.axiom.engine.item.model.MeshGeometry;
+import com.axiom.engine.item.model.Texture;
+import com.axiom.engine.loaders.ShaderReader;
+
+/**
+ * Draws the HUD from one streamed vertex buffer
+ * <p>
+ * <br>
+ * Every HUD item, text or mesh, is transformed to screen
+ * space on the CPU and written into one vertex buffer each
+ * frame, with its colour per vertex. The vertices are grouped
+ * by texture, so the whole HUD costs one draw per texture
+ * rather than one per item.
+ * <br>
+ * Text that changes every frame is added as a
+ * {@link TextBuffer} and written glyph by glyph, so it needs
+ * no Mesh that would have to be rebuilt on every change.
+ * <br>
+ * Items and text are drawn in the order they were added
+ * within a texture, and textures in the order first seen.
+ * Items with different textures should not overlap.
+ * <br>
+ * Vertex layout, matching hud_vertex.vs:
+ * <pre>
+ * location 0 vec2 position, in pixels
+ * location 1 vec2 texture coordinate
+ * location 2 vec4 colour
+ * </pre>
+ * </p>
+ */
+public class HudBatch {
+
+    private static final int FLOATS_PER_VERTEX = 8;
+    private static final int BYTES_PER_VERTEX = FLOATS_PER_VERTEX * 4;
+    private static final int INITIAL_VERTICES = 1024;
+    private static final int INITIAL_ITEMS = 16;
+    private static final int VERTICES_PER_GLYPH = 4;
+    private static final int INDICES_PER_GLYPH = 6;
+
+    private final int vaoId;
+    private final int vboId;
+    private final int eboId;
+
+    private FloatBuffer vertices;
+    private IntBuffer indices;
+    private int vertexCount;
+
+    // Items queued since begin(), and the distinct textures among them
+    private Item[] items;
+    private int itemCount;
+    // Text added since begin(): buffer, font, colour and x, y per run
+    private TextBuffer[] texts;
+    private FontTexture[] fonts;
+    private Vector4f[] textColours;
+    private float[] textPositions;
+    private int textCount;
+    private int[] textures;
+    private int textureCount;
+    // Scratch for the index count at the end of each texture group
+    private int[] groupEnds;
+
+    private int drawCalls;
+
+    /**
+     * Create the vertex array and buffers
+     */
+    public HudBatch() {
+        vertices = MemoryUtil.memAllocFloat(INITIAL_VERTICES * FLOATS_PER_VERTEX);
+        indices = MemoryUtil.memAllocInt(INITIAL_VERTICES * 2);
+        items = new Item[INITIAL_ITEMS];
+        texts = new TextBuffer[INITIAL_ITEMS];
+        fonts = new FontTexture[INITIAL_ITEMS];
+        textColours = new Vector4f[INITIAL_ITEMS];
+        textPositions = new float[INITIAL_ITEMS * 2];
+        textures = new int[INITIAL_ITEMS];
+        groupEnds = new int[INITIAL_ITEMS];
+
+        GLStateCache glState = GLStateCache.getInstance();
+        int previousVao = glState.getVertexArray();
+        vaoId = glGenVertexArrays();
+        glState.bindVertexArray(vaoId);
+        vboId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, BYTES_PER_VERTEX, 0);
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, BYTES_PER_VERTEX, 2 * 4);
+        glVertexAttribPointer(2, 4, GL_FLOAT, false, BYTES_PER_VERTEX, 4 * 4);
+        glEnableVertexAttribArray(0);
+        glEnableVertexAttribArray(1);
+        glEnableVertexAttribArray(2);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        // The element buffer binding is VAO state, so it stays bound
+        eboId = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboId);
+        if (previousVao >= 0) {
+            glState.bindVertexArray(previousVao);
+        }
+    }
+
+    /**
+     * Start a new frame's batch
+     */
+    public void begin() {
+        Arrays.fill(items, 0, itemCount, null);
+        itemCount = 0;
+        Arrays.fill(texts, 0, textCount, null);
+        Arrays.fill(fonts, 0, textCount, null);
+        Arrays.fill(textColours, 0, textCount, null);
+        textCount = 0;
+        textureCount = 0;
+        drawCalls = 0;
+    }
+
+    /**
+     * Queue an item for this frame
+     * @param gameItem a HUD item with a Mesh, in pixel coordinates
+     */
+    public void add(Item gameItem) {
+        Mesh mesh = gameItem.getMesh();
+        if (mesh == null) {
+            return;
+        }
+        if (itemCount == items.length) {
+            items = Arrays.copyOf(items, itemCount * 2);
+        }
+        items[itemCount++] = gameItem;
+        addTexture(textureId(mesh.getMaterial()));
+    }
+
+    /**
+     * Queue a line of text for this frame
+     * <br>
+     * The characters are read when the batch is flushed,
+     * so the buffer must not change until then.
+     * @param text the text
+     * @param font the font to draw it in
+     * @param x left edge, in pixels
+     * @param y top edge, in pixels
+     * @param colour the text colour
+     */
+    public void addText(TextBuffer text, FontTexture font, float x, float y, Vector4f colour) {
+        if (textCount == texts.length) {
+            int capacity = textCount * 2;
+            texts = Arrays.copyOf(texts, capacity);
+            fonts = Arrays.copyOf(fonts, capacity);
+            textColours = Arrays.copyOf(textColours, capacity);
+            textPositions = Arrays.copyOf(textPositions, capacity * 2);
+        }
+        texts[textCount] = text;
+        fonts[textCount] = font;
+        textColours[textCount] = colour;
+        textPositions[textCount * 2] = x;
+        textPositions[textCount * 2 + 1] = y;
+        textCount++;
+        addTexture(font.getTexture().getId());
+    }
+
+    private void addTexture(int texture) {
+        for (int i = 0; i < textureCount; i++) {
+            if (textures[i] == texture) {
+                return;
+            }
+        }
+        if (textureCount == textures.length) {
+            textures = Arrays.copyOf(textures, textureCount * 2);
+        }
+        textures[textureCount++] = texture;
+    }
+
+    /**
+     * Build, upload and draw the queued items
+     * <br>
+     * The HUD program must be bound.
+     * @param program the HUD program
+     * @param hasTextureUniform its slot telling if the texture is sampled
+     */
+    public void flush(ShaderReader program, int hasTextureUniform) {
+        if (itemCount == 0 && textCount == 0) {
+            return;
+        }
+        // Build the vertices texture by texture, remembering where each group's indices start
+        vertices.clear();
+        indices.clear();
+        vertexCount = 0;
+        int[] groupEnds = textureGroupEnds();
+        for (int t = 0; t < textureCount; t++) {
+            for (int i = 0; i < itemCount; i++) {
+                if (textureId(items[i].getMesh().getMaterial()) == textures[t]) {
+                    write(items[i]);
+                }
+            }
+            for (int i = 0; i < textCount; i++) {
+                if (fonts[i].getTexture().getId() == textures[t]) {
+                    writeText(i);
+                }
+            }
+            groupEnds[t] = indices.position();
+        }
+        vertices.flip();
+        indices.flip();
+
+        GLStateCache glState = GLStateCache.getInstance();
+        glState.bindVertexArray(vaoId);
+        // Orphan last frame's data and upload this frame's
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STREAM_DRAW);
+
+        int start = 0;
+        for (int t = 0; t < textureCount; t++) {
+            int count = groupEnds[t] - start;
+            if (count > 0) {
+                program.setUniform(hasTextureUniform, textures[t] != 0 ? 1 : 0);
+                glState.bindTexture(0, textures[t]);
+                glDrawElements(GL_TRIANGLES, count, GL_UNSIGNED_INT, start * 4L);
+                glState.countDraw(count, 1);
+                drawCalls++;
+            }
+            start = groupEnds[t];
+        }
+    }
+
+    /**
+     * Get the number of draws the last flush issued
+     * @return draw call count
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * Delete the buffers
+     */
+    public void cleanup() {
+        glDeleteBuffers(vboId);
+        glDeleteBuffers(eboId);
+        glDeleteVertexArrays(vaoId);
+        GLStateCache.getInstance().vertexArrayDeleted(vaoId);
+        MemoryUtil.memFree(vertices);
+        MemoryUtil.memFree(indices);
+    }
+
+    private int[] textureGroupEnds() {
+        if (groupEnds.length < textureCount) {
+            groupEnds = new int[textures.length];
+        }
+        return groupEnds;
+    }
+
+    /**
+     * Transform an item's mesh to screen space and append it
+     */
+    private void write(Item gameItem) {
+        MeshGeometry geometry = gameItem.getMesh().getGeometry();
+        Material material = gameItem.getMesh().getMaterial();
+        Vector4f colour = material.getAmbientColour();
+        Matrix4f m = gameItem.getModelMatrix();
+        float[] positions = geometry.getPositions();
+        float[] textCoords = geometry.getTextCoords();
+        int[] itemIndices = geometry.getIndices();
+        int itemVertices = geometry.getVertexCount();
+        ensureCapacity(itemVertices, itemIndices.length);
+
+        for (int i = 0; i < itemVertices; i++) {
+            float x = positions[i * 3];
+            float y = positions[i * 3 + 1];
+            float z = positions[i * 3 + 2];
+            // The ortho projection is applied in the shader, so only x and y are needed
+            vertices.put(m.m00() * x + m.m10() * y + m.m20() * z + m.m30());
+            vertices.put(m.m01() * x + m.m11() * y + m.m21() * z + m.m31());
+            if (i * 2 + 1 < textCoords.length) {
+                vertices.put(textCoords[i * 2]).put(textCoords[i * 2 + 1]);
+            } else {
+                vertices.put(0).put(0);
+            }
+            vertices.put(colour.x).put(colour.y).put(colour.z).put(colour.w);
+        }
+        for (int index : itemIndices) {
+            indices.put(vertexCount + index);
+        }
+        vertexCount += itemVertices;
+    }
+
+    /**
+     * Append one quad per character of a queued text
+     */
+    private void writeText(int text) {
+        TextBuffer chars = texts[text];
+        FontTexture font = fonts[text];
+        Vector4f colour = textColours[text];
+        float x = textPositions[text * 2];
+        float top = textPositions[text * 2 + 1];
+        float bottom = top + font.getHeight();
+        float fontWidth = font.getWidth();
+        int length = chars.length();
+        ensureCapacity(length * VERTICES_PER_GLYPH, length * INDICES_PER_GLYPH);
+
+        for (int i = 0; i < length; i++) {
+            FontTexture.CharInfo charInfo = font.getCharInfo(chars.charAt(i));
+            if (charInfo == null) {
+                continue;
+            }
+            float right = x + charInfo.getWidth();
+            float u0 = charInfo.getStartX() / fontWidth;
+            float u1 = (charInfo.getStartX() + charInfo.getWidth()) / fontWidth;
+            // Left top, left bottom, right bottom, right top, as TextItem builds them
+            putVertex(x, top, u0, 0, colour);
+            putVertex(x, bottom, u0, 1, colour);
+            putVertex(right, bottom, u1, 1, colour);
+            putVertex(right, top, u1, 0, colour);
+            indices.put(vertexCount).put(vertexCount + 1).put(vertexCount + 2);
+            indices.put(vertexCount + 3).put(vertexCount).put(vertexCount + 2);
+            vertexCount += VERTICES_PER_GLYPH;
+            x = right;
+        }
+    }
+
+    private void putVertex(float x, float y, float u, float v, Vector4f colour) {
+        vertices.put(x).put(y).put(u).put(v);
+        vertices.put(colour.x).put(colour.y).put(colour.z).put(colour.w);
+    }
+
+    private void ensureCapacity(int moreVertices, int moreIndices) {
+        int requiredFloats = vertices.position() + moreVertices * FLOATS_PER_VERTEX;
+        if (requiredFloats > vertices.capacity()) {
+            vertices = MemoryUtil.memRealloc(vertices, Math.max(requiredFloats, vertices.capacity() * 2));
+        }
+        int requiredIndices = indices.position() + moreIndices;
+        if (requiredIndices > indices.capacity()) {
+            indices = MemoryUtil.memRealloc(indices, Math.max(requiredIndices, indices.capacity() * 2));
+        }
+    }
+
+    private static int textureId(Material material) {
+        Texture texture = material.isTextured() ? material.getTexture() : null;
+        return texture != null ? texture.getId() : 0;
+    }
+}
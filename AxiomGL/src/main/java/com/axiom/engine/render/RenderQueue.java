@@ -0,0 +1,231 @@
+package com.axiom.engine.render;
+
+import java.util.Arrays;
+
+import com.axiom.engine.item.Item;
+import com.axiom.engine.item.model.Material;
+import com.axiom.engine.item.model.Mesh;
+import com.axiom.engine.item.model.Texture;
+
+/**
+ * Per-frame list of draws sorted to minimise state changes
+ * <p>
+ * <br>
+ * Every draw gets a 64 bit key and the keys are radix sorted
+ * each frame. Draws that need the same GL state end up next
+ * to each other, so the renderer only binds what changes
+ * between neighbours and can merge runs of the same Mesh into
+ * one instanced draw.
+ * <br>
+ * Opaque key, from the top bit down:
+ * <pre>
+ * 1  blend (0)
+ * 6  shader
+ * 12 texture
+ * 12 VAO
+ * 10 material
+ * 23 depth, near to far
+ * </pre>
+ * Blended key:
+ * <pre>
+ * 1  blend (1)
+ * 23 depth, far to near
+ * 6  shader
+ * 12 texture
+ * 12 VAO
+ * 10 material
+ * </pre>
+ * So opaque draws come first, grouped by state and front to
+ * back within a group for early depth rejection, then blended
+ * draws strictly back to front. Ids wider than their field
+ * are folded; that only costs batching, since the renderer
+ * compares the real objects before merging draws.
+ * </p>
+ */
+public class RenderQueue {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final int DEPTH_BITS = 23;
+    private static final int SHADER_BITS = 6;
+    private static final int TEXTURE_BITS = 12;
+    private static final int VAO_BITS = 12;
+    private static final int MATERIAL_BITS = 10;
+    private static final int STATE_BITS = SHADER_BITS + TEXTURE_BITS + VAO_BITS + MATERIAL_BITS;
+    private static final long BLEND_BIT = 1L << 63;
+    private static final long DEPTH_MAX = (1L << DEPTH_BITS) - 1;
+
+    // Radix sort digits
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int PASSES = 64 / RADIX_BITS;
+
+    private Item[] items;
+    private long[] keys;
+    private int[] order;
+    private int size;
+
+    private long[] keyScratch;
+    private int[] orderScratch;
+    private final int[] counts;
+
+    private float zNear;
+    private float zFar;
+
+    /**
+     * Construct an empty queue
+     * @param zNear distance of the near plane
+     * @param zFar distance of the far plane
+     */
+    public RenderQueue(float zNear, float zFar) {
+        items = new Item[INITIAL_CAPACITY];
+        keys = new long[INITIAL_CAPACITY];
+        order = new int[INITIAL_CAPACITY];
+        keyScratch = new long[INITIAL_CAPACITY];
+        orderScratch = new int[INITIAL_CAPACITY];
+        counts = new int[RADIX];
+        setDepthRange(zNear, zFar);
+    }
+
+    /**
+     * Set the range depths are quantised over
+     * @param zNear distance of the near plane
+     * @param zFar distance of the far plane
+     */
+    public void setDepthRange(float zNear, float zFar) {
+        this.zNear = zNear;
+        this.zFar = zFar;
+    }
+
+    /**
+     * Empty the queue for a new frame
+     */
+    public void clear() {
+        // Drop item references so removed items can be collected
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Queue an item
+     * @param gameItem the item to draw
+     * @param shaderId identifies the program it is drawn with
+     * @param viewDepth its distance in front of the camera
+     */
+    public void add(Item gameItem, int shaderId, float viewDepth) {
+        if (size == items.length) {
+            int capacity = items.length * 2;
+            items = Arrays.copyOf(items, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            order = Arrays.copyOf(order, capacity);
+            keyScratch = new long[capacity];
+            orderScratch = new int[capacity];
+        }
+        Mesh mesh = gameItem.getMesh();
+        Material material = mesh.getMaterial();
+        Texture texture = material.getTexture();
+
+        long state = field(shaderId, SHADER_BITS);
+        state = (state << TEXTURE_BITS) | field(texture != null ? texture.getId() : 0, TEXTURE_BITS);
+        state = (state << VAO_BITS) | field(mesh.getVaoId(), VAO_BITS);
+        state = (state << MATERIAL_BITS) | field(System.identityHashCode(material), MATERIAL_BITS);
+
+        long depth = quantiseDepth(viewDepth);
+        long key;
+        if (material.isTransparent()) {
+            key = BLEND_BIT | ((DEPTH_MAX - depth) << STATE_BITS) | state;
+        } else {
+            key = (state << DEPTH_BITS) | depth;
+        }
+
+        items[size] = gameItem;
+        keys[size] = key;
+        order[size] = size;
+        size++;
+    }
+
+    /**
+     * Sort the queued draws by key
+     */
+    public void sort() {
+        long[] srcKeys = keys;
+        int[] srcOrder = order;
+        long[] dstKeys = keyScratch;
+        int[] dstOrder = orderScratch;
+        for (int pass = 0; pass < PASSES; pass++) {
+            int shift = pass * RADIX_BITS;
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++) {
+                counts[(int) (srcKeys[i] >>> shift) & (RADIX - 1)]++;
+            }
+            // Every key has the same digit, this pass would not move anything
+            if (size == 0 || counts[(int) (srcKeys[0] >>> shift) & (RADIX - 1)] == size) {
+                continue;
+            }
+            int total = 0;
+            for (int d = 0; d < RADIX; d++) {
+                int count = counts[d];
+                counts[d] = total;
+                total += count;
+            }
+            for (int i = 0; i < size; i++) {
+                int slot = counts[(int) (srcKeys[i] >>> shift) & (RADIX - 1)]++;
+                dstKeys[slot] = srcKeys[i];
+                dstOrder[slot] = srcOrder[i];
+            }
+            long[] swapKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = swapKeys;
+            int[] swapOrder = srcOrder;
+            srcOrder = dstOrder;
+            dstOrder = swapOrder;
+        }
+        keys = srcKeys;
+        order = srcOrder;
+        keyScratch = dstKeys;
+        orderScratch = dstOrder;
+    }
+
+    /**
+     * Get the number of queued draws
+     * @return queue size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a draw in sorted order
+     * @param index position below {@link #size()}
+     * @return the item
+     */
+    public Item get(int index) {
+        return items[order[index]];
+    }
+
+    /**
+     * Tell if a draw in sorted order is blended
+     * @param index position below {@link #size()}
+     * @return blended?
+     */
+    public boolean isBlended(int index) {
+        return keys[index] < 0;
+    }
+
+    private long quantiseDepth(float viewDepth) {
+        float t = (viewDepth - zNear) / (zFar - zNear);
+        if (!(t > 0)) {
+            return 0;
+        }
+        if (t >= 1) {
+            return DEPTH_MAX;
+        }
+        return (long) (t * DEPTH_MAX);
+    }
+
+    private static long field(int id, int bits) {
+        // Fold the high bits in so ids larger than the field still spread out
+        long mask = (1L << bits) - 1;
+        return (id ^ (id >>> bits) ^ (id >>> (bits * 2))) & mask;
+    }
+}
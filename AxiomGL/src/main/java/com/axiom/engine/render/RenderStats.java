@@ -0,0 +1,169 @@
+package com.axiom.engine.render;
+
+import java.util.Arrays;
+
+/**
+ * What the Renderer did last frame, pass by pass
+ * <p>
+ * <br>
+ * For each {@link Pass} it holds the draw calls, triangles,
+ * GL state changes and uniform uploads the pass submitted,
+ * and the GPU time it took. Counts are for the last rendered
+ * frame; GPU times come from timer queries read a few frames
+ * later, so they lag behind by {@link GpuTimer#LATENCY} frames
+ * and are -1 until the first result arrives or when the
+ * driver has no timer queries.
+ * <br>
+ * The Renderer fills one instance in place every frame, so
+ * copy the values out rather than keeping the object.
+ * <br>
+ * Example usage:
+ * <pre>
+ * RenderStats stats = renderer.getStats();
+ * System.out.println(stats.getDrawCalls(RenderStats.Pass.SCENE) + " scene draws");
+ * </pre>
+ * </p>
+ */
+public class RenderStats {
+
+    /**
+     * The passes of a frame, in the order they are drawn
+     */
+    public enum Pass {
+        SCENE, SKYBOX, HUD
+    }
+
+    private static final int PASSES = Pass.values().length;
+
+    private final long[] drawCalls;
+    private final long[] triangles;
+    private final long[] stateChanges;
+    private final long[] uniformUploads;
+    private final long[] gpuTimes;
+    private long frame;
+
+    public RenderStats() {
+        drawCalls = new long[PASSES];
+        triangles = new long[PASSES];
+        stateChanges = new long[PASSES];
+        uniformUploads = new long[PASSES];
+        gpuTimes = new long[PASSES];
+        Arrays.fill(gpuTimes, -1);
+    }
+
+    /**
+     * Record the counts of a finished pass
+     * @param pass the pass
+     * @param drawCalls draw calls it issued
+     * @param triangles triangles it drew
+     * @param stateChanges GL state changes that reached the driver
+     * @param uniformUploads uniform uploads that reached the driver
+     */
+    public void setCounts(Pass pass, long drawCalls, long triangles, long stateChanges, long uniformUploads) {
+        int i = pass.ordinal();
+        this.drawCalls[i] = drawCalls;
+        this.triangles[i] = triangles;
+        this.stateChanges[i] = stateChanges;
+        this.uniformUploads[i] = uniformUploads;
+    }
+
+    /**
+     * Record a pass' GPU time once its query result is back
+     * @param pass the pass
+     * @param nanos GPU time in nanoseconds
+     */
+    public void setGpuTime(Pass pass, long nanos) {
+        gpuTimes[pass.ordinal()] = nanos;
+    }
+
+    public void setFrame(long frame) {
+        this.frame = frame;
+    }
+
+    /**
+     * Get the number of the frame the counts belong to
+     * @return frames rendered before it
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    public long getDrawCalls(Pass pass) {
+        return drawCalls[pass.ordinal()];
+    }
+
+    public long getTriangles(Pass pass) {
+        return triangles[pass.ordinal()];
+    }
+
+    public long getStateChanges(Pass pass) {
+        return stateChanges[pass.ordinal()];
+    }
+
+    public long getUniformUploads(Pass pass) {
+        return uniformUploads[pass.ordinal()];
+    }
+
+    /**
+     * Get a pass' GPU time
+     * @param pass the pass
+     * @return nanoseconds, or -1 if not known
+     */
+    public long getGpuTime(Pass pass) {
+        return gpuTimes[pass.ordinal()];
+    }
+
+    public long getTotalDrawCalls() {
+        return sum(drawCalls);
+    }
+
+    public long getTotalTriangles() {
+        return sum(triangles);
+    }
+
+    public long getTotalStateChanges() {
+        return sum(stateChanges);
+    }
+
+    public long getTotalUniformUploads() {
+        return sum(uniformUploads);
+    }
+
+    /**
+     * Get the GPU time of the whole frame
+     * @return nanoseconds, or -1 if any pass is not known
+     */
+    public long getTotalGpuTime() {
+        long total = 0;
+        for (long time : gpuTimes) {
+            if (time < 0) {
+                return -1;
+            }
+            total += time;
+        }
+        return total;
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * One line per pass, for logging
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Frame ").append(frame);
+        for (Pass pass : Pass.values()) {
+            int i = pass.ordinal();
+            sb.append(String.format("%n  %-6s %5d draws %8d tris %5d state %5d uniforms  ",
+                    pass, drawCalls[i], triangles[i], stateChanges[i], uniformUploads[i]));
+            sb.append(gpuTimes[i] < 0 ? "gpu n/a" : String.format("gpu %.3f ms", gpuTimes[i] / 1e6));
+        }
+        return sb.toString();
+    }
+}
@@ -7,12 +7,13 @@ import java.nio.DoubleBuffer;
 import org.joml.Vector3f;
 import org.lwjgl.BufferUtils;
 
-import com.axiom.engine.IGame;
+import com.axiom.engine.IHeadlessGame;
 import com.axiom.engine.Window;
 import com.axiom.engine.input.InputHandler;
 import com.axiom.engine.item.CollidableItem;
 import com.axiom.engine.item.Item;
 import com.axiom.engine.item.SkyBox;
+import com.axiom.engine.item.SweepAndPrune;
 import com.axiom.engine.item.model.Texture;
 import com.axiom.engine.item.interfaces.Collidable;
 import com.axiom.engine.item.light.Light;
@@ -25,45 +26,104 @@ import com.axiom.engine.math.Camera;
 import com.axiom.engine.input.InputHandler;
 import com.axiom.engine.Renderer;
 import com.axiom.engine.Scene;
+import com.axiom.engine.SceneMirror;
+import com.axiom.engine.SceneSnapshot;
 
 import org.joml.Vector2f;
-public class Game implements IGame {
+public class Game implements IHeadlessGame {
     
     private final Renderer renderer;
     private Item[] gameItems;
 
     private Hud hud;
     private Camera camera;
-    private Vector3f cameraInc;
-    private double ry;
-    private double rx;
+    // Latched by input and read by update, which may be on another thread
+    private volatile Controls controls;
 
     private Vector3f ambientLight;
     private Light light;
     private static final float CAMERA_POS_STEP = 0.05f;
     private static final float MOUSE_SENSITIVITY = 0.2f;
-    private boolean moving2 = false;
+    private static final float SKY_BOX_SCALE = 10.0f;
+    private static final float REFLECTANCE = .1f;
+    private static final String MODEL_FILE = "/models/cube.obj";
     private Scene scene;
+    private final SceneMirror mirror;
     private Terrain terrain;
+    private SweepAndPrune broadphase;
+    private CollidableItem movingItem;
     private int n = 0;
     private float chng = .005f;
     public Game() {
         renderer = new Renderer();
         camera = new Camera();
-        cameraInc = new Vector3f(0, 0, 0);
+        controls = Controls.NONE;
+        mirror = new SceneMirror();
     }
 
     @Override
     public void init(Window window) throws Exception {
         renderer.init(window);
-        float reflectance = .1f;
-        scene = new Scene();
 
-        String modelFile = "/models/cube.obj";
         String textureFile = "/textures/grassblock.png";
         
+		Mesh mesh = OBJLoader.loadMesh(MODEL_FILE);
+		Texture texture = new Texture(textureFile);
+		Material material = new Material(texture, REFLECTANCE);
+		mesh.setMaterial(material);
+		
+        initWorld(mesh);
+        
+        SkyBox skyBox = new SkyBox("/models/skybox.obj", "/textures/skybox.png");
+        skyBox.setScale(SKY_BOX_SCALE);
+        scene.setSkyBox(skyBox);
+        
+		//System.exit(0);
+        hud = new Hud("DEMO");//GHIJKLMNOPQRSTUVWXYZ
+    }
+    
+    /**
+     * Set up the simulation without a window
+     * <br>
+     * The same world as {@link #init(Window)}, but the cube's
+     * vertex data stays on the CPU and its material has no
+     * texture, so nothing touches GL. Bounds, collisions and
+     * the renderer's culling work as with a window.
+     */
+    @Override
+    public void initHeadless() throws Exception {
+        Mesh mesh = OBJLoader.loadUnloadedMesh(MODEL_FILE);
+        Material material = new Material();
+        material.setReflectance(REFLECTANCE);
+        mesh.setMaterial(material);
+        initWorld(mesh);
+    }
+    
+    /**
+     * Get the scene update runs on
+     * @return the scene
+     */
+    public Scene getScene() {
+        return scene;
+    }
+    
+    /**
+     * Get the camera update moves
+     * @return the camera
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+    
+    /**
+     * Build the items, light and camera the simulation runs on
+     * @param mesh the Mesh every block shares
+     */
+    private void initWorld(Mesh mesh) {
+        scene = new Scene();
+        
         float blockScale = 0.5f;        
-        float skyBoxScale = 10.0f;
+        float skyBoxScale = SKY_BOX_SCALE;
         float extension = 2.0f;
         
         float startx = extension * (-skyBoxScale + blockScale);
@@ -77,25 +137,29 @@ public class Game implements IGame {
         int NUM_ROWS = (int)(extension * skyBoxScale * 2 / inc);
         int NUM_COLS = (int)(extension * skyBoxScale * 2/ inc);
         Item[] gameItems  = new Item[2 + NUM_ROWS * NUM_COLS];
-        
-		Mesh mesh = OBJLoader.loadMesh(modelFile);
-		Texture texture = new Texture(textureFile);
-		Material material = new Material(texture, reflectance);
-		mesh.setMaterial(material);
 		
-		CollidableItem i1 = new CollidableItem(mesh.clone());
+		// Items only hold a transform, so they can all share one Mesh
+		CollidableItem i1 = new CollidableItem(mesh);
 		i1.setPosition(0, 3, -1);
 	
-		CollidableItem i2 = new CollidableItem(mesh.clone());
+		CollidableItem i2 = new CollidableItem(mesh);
 		i2.setPosition(0, 3, 2);
 		
 		gameItems[0] = i1;
 		gameItems[1] = i2;
 		
+		// Only the free cubes are checked for collisions, the grid is ground
+		broadphase = new SweepAndPrune();
+		broadphase.add(i1);
+		broadphase.add(i2);
+		movingItem = i2;
+		
 		
         for(int i=0; i<NUM_ROWS; i++) {
             for(int j=0; j<NUM_COLS; j++) {
-                Item gameItem = new CollidableItem(mesh.clone());
+                Item gameItem = new CollidableItem(mesh);
+                // The ground never moves, so it is baked into a few batches
+                gameItem.setStatic(true);
                 gameItem.setScale(blockScale);
                 incy = Math.random() > 0.9f ? blockScale * 2 : 0f;
                 gameItem.setPosition(posx, starty + incy, posz);
@@ -113,13 +177,7 @@ public class Game implements IGame {
         //float lightIntensity = 1.0f;
         light = new Light(lightColour, lightPosition, ambientLight, 0.2f, 5.0f);
         
-        SkyBox skyBox = new SkyBox("/models/skybox.obj", "/textures/skybox.png");
-        skyBox.setScale(skyBoxScale);
-        scene.setSkyBox(skyBox);
-        
         scene.setSceneLight(light);
-		//System.exit(0);
-        hud = new Hud("DEMO");//GHIJKLMNOPQRSTUVWXYZ
         camera.getPosition().x = 0.0f;
         camera.getPosition().y = 5.0f;
         camera.getPosition().z = 0.0f;
@@ -128,30 +186,31 @@ public class Game implements IGame {
     
     @Override
     public void input(Window window, InputHandler input) {
-        cameraInc.set(0, 0, 0);
+        float moveX = 0, moveY = 0, moveZ = 0;
         if (input.keyDown(GLFW_KEY_W)) {
-            cameraInc.z = -1;
+            moveZ = -1;
         } else if (input.keyDown(GLFW_KEY_S)) {
-            cameraInc.z = 1;
+            moveZ = 1;
         }
         if (input.keyDown(GLFW_KEY_A)) {
-            cameraInc.x = -1;
+            moveX = -1;
         } else if (input.keyDown(GLFW_KEY_D)) {
-            cameraInc.x = 1;
+            moveX = 1;
         }
         if (input.keyDown(GLFW_KEY_Z)) {
-            cameraInc.y = -1;
+            moveY = -1;
         } else if (input.keyDown(GLFW_KEY_X)) {
-            cameraInc.y = 1;
+            moveY = 1;
         }
+        Controls latched = controls;
         int mult;
-        if (Math.cos(Math.toRadians(rx)) < 0) {
+        if (Math.cos(Math.toRadians(latched.rx)) < 0) {
             mult = -1;
         } else {
             mult = 1;
         }
-        ry = 0;
-        rx = 0;
+        float ry = 0;
+        float rx = 0;
         if (input.keyDown(GLFW_KEY_LEFT))
             ry = mult;
         if (input.keyDown(GLFW_KEY_RIGHT))
@@ -160,11 +219,19 @@ public class Game implements IGame {
             rx = 1;
         if (input.keyDown(GLFW_KEY_UP))
             rx = -1;
-        
-        ry = (Math.abs(ry) % 360) * Math.signum(ry);
-        rx = (Math.abs(rx) % 360) * Math.signum(rx);
-        moving2 = input.keyDown(GLFW_KEY_M);
+        boolean moving2 = input.keyDown(GLFW_KEY_M);
         input.input(window);
+        // Update only gets the mouse movement while the right button is held
+        float mouseX = 0, mouseY = 0;
+        if (input.mouseButtonDown(1)) {
+            Vector2f rotVec = input.getDisplVec();
+            mouseX = rotVec.x;
+            mouseY = rotVec.y;
+        }
+        // Only publish a new latch when something changed, so idle frames allocate nothing
+        if (!latched.matches(moveX, moveY, moveZ, rx, ry, mouseX, mouseY, moving2)) {
+            controls = new Controls(moveX, moveY, moveZ, rx, ry, mouseX, mouseY, moving2);
+        }
         
         if (input.keyDown(GLFW_KEY_Q))
             System.exit(0);
@@ -174,19 +241,24 @@ public class Game implements IGame {
     @Override
     public void update(float interval, InputHandler input) {
     		n++;
-        camera.moveRotation((float)rx, (float)ry, 0.0f);
-        //camera.movePosition(cameraInc.x * CAMERA_POS_STEP, cameraInc.y * CAMERA_POS_STEP, cameraInc.z * CAMERA_POS_STEP);
+        // Read the latch once, so the whole tick sees the same input
+        Controls controls = this.controls;
+        camera.moveRotation(controls.rx, controls.ry, 0.0f);
         // Update camera based on mouse            
-        if (input.mouseButtonDown(1)) {
-            Vector2f rotVec = input.getDisplVec();
-            camera.moveRotation(rotVec.x * MOUSE_SENSITIVITY, rotVec.y * MOUSE_SENSITIVITY, 0);
-
-            // Update HUD compass
-            hud.rotateCompass(camera.getRotation().y);
+        camera.moveRotation(controls.mouseX * MOUSE_SENSITIVITY, controls.mouseY * MOUSE_SENSITIVITY, 0);
+        // Move the second cube with M and stop it when it hits something
+        if (controls.moving2) {
+            Vector3f pos = movingItem.getPosition();
+            movingItem.setPosition(pos.x, pos.y, pos.z - .01f);
+        }
+        int pairs = broadphase.update();
+        for (int i = 0; i < pairs; i++) {
+            if (broadphase.getFirst(i).collides(broadphase.getSecond(i), camera)) {
+                movingItem.resetPosition();
+            }
         }
         // Update camera position
-        Vector3f prevPos = new Vector3f(camera.getPosition());
-        camera.movePosition(cameraInc.x * CAMERA_POS_STEP, cameraInc.y * CAMERA_POS_STEP, cameraInc.z * CAMERA_POS_STEP);        
+        camera.movePosition(controls.moveX * CAMERA_POS_STEP, controls.moveY * CAMERA_POS_STEP, controls.moveZ * CAMERA_POS_STEP);        
         // Check if there has been a collision. If true, set the y position to
         // the maximum height
         /*
@@ -236,19 +308,6 @@ public class Game implements IGame {
         //System.out.println(light.getPosition());
         //System.out.println(a.getPosition());
         //System.out.println(b.getPosition());
-        Vector3f ambient = light.getAmbient();
-        float x=ambient.x, y=ambient.y, z=ambient.z;
-        if (x == 1f || x < 0.3) chng *= -1;
-        x+=chng;y+=chng;z+=chng;
-        ambient = new Vector3f(x, y, z);
-        //light.setAmbient(ambient);
-        
-        Vector3f position = light.getPosition();
-        x=position.x; y=position.y; z=position.z;
-        if (x == 1 || x == 0) chng *= -1;
-        x+=chng;y+=chng;z+=chng;
-        position = new Vector3f(x, y, z);
-        //light.setPosition(position);
     }
     
     public double[] getMousePosition() {
@@ -258,15 +317,81 @@ public class Game implements IGame {
         return new double[] { xBuffer.get(0), yBuffer.get(0) };
     }
     
+    @Override
+    public void snapshot(SceneSnapshot snapshot) {
+        snapshot.capture(scene, camera, n);
+    }
+    
+    @Override
+    public void storePreviousState() {
+        scene.storePreviousTransforms();
+        camera.storePreviousTransform();
+    }
+    
+    @Override
+    public void render(Window window, SceneSnapshot snapshot, float alpha) {
+        mirror.apply(snapshot);
+        hud.updateSize(window);
+        hud.rotateCompass(mirror.getCamera().getRotation().y);
+        renderer.render(window, mirror.getCamera(), mirror.getScene(), hud, alpha);
+        hud.setRenderStats(renderer.getDrawnItems(), renderer.getCulledItems(), renderer.getStats().getTotalDrawCalls());
+    }
+    
     @Override
     public void render(Window window) {
+        render(window, 1);
+    }
+    
+    @Override
+    public void render(Window window, float alpha) {
     		hud.updateSize(window);
-        renderer.render(window, camera, scene, hud);
+        hud.rotateCompass(camera.getRotation().y);
+        renderer.render(window, camera, scene, hud, alpha);
+        hud.setRenderStats(renderer.getDrawnItems(), renderer.getCulledItems(), renderer.getStats().getTotalDrawCalls());
+    }
+    
+    /**
+     * One frame's input, latched for update
+     * <br>
+     * Immutable, so update on another thread sees either the
+     * whole of one frame's input or the whole of the next,
+     * never a mix or a half written value.
+     */
+    private static final class Controls {
+
+        static final Controls NONE = new Controls(0, 0, 0, 0, 0, 0, 0, false);
+
+        // Camera movement and key rotation, -1, 0 or 1 per axis
+        final float moveX, moveY, moveZ;
+        final float rx, ry;
+        // Mouse displacement while the right button is down
+        final float mouseX, mouseY;
+        final boolean moving2;
+
+        Controls(float moveX, float moveY, float moveZ, float rx, float ry, float mouseX, float mouseY,
+                boolean moving2) {
+            this.moveX = moveX;
+            this.moveY = moveY;
+            this.moveZ = moveZ;
+            this.rx = rx;
+            this.ry = ry;
+            this.mouseX = mouseX;
+            this.mouseY = mouseY;
+            this.moving2 = moving2;
+        }
+
+        boolean matches(float moveX, float moveY, float moveZ, float rx, float ry, float mouseX, float mouseY,
+                boolean moving2) {
+            return this.moveX == moveX && this.moveY == moveY && this.moveZ == moveZ && this.rx == rx
+                    && this.ry == ry && this.mouseX == mouseX && this.mouseY == mouseY && this.moving2 == moving2;
+        }
     }
     
     @Override
     public void cleanup() {
         renderer.cleanup();
+        scene.cleanup();
+        mirror.cleanup();
         for (Item gameItem : gameItems) {
             gameItem.getMesh().cleanUp();
         }
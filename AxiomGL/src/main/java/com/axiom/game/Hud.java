@@ -8,10 +8,12 @@ import com.axiom.engine.Window;
 import com.axiom.engine.hud.IHud;
 import com.axiom.engine.hud.TextItem;
 import com.axiom.engine.hud.FontTexture;
+import com.axiom.engine.hud.TextBuffer;
 import com.axiom.engine.item.Item;
 import com.axiom.engine.item.model.Material;
 import com.axiom.engine.item.model.Mesh;
 import com.axiom.engine.loaders.OBJLoader;
+import com.axiom.engine.render.HudBatch;
 
 
 public class Hud implements IHud {
@@ -21,16 +23,34 @@ public class Hud implements IHud {
 
     private static final String CHARSET = "ISO-8859-1";
 
+    private static final Vector4f TEXT_COLOUR = new Vector4f(1, 1, 1, 1);
+
     private final Item[] gameItems;
 
+    private final FontTexture fontTexture;
+
     private final TextItem statusTextItem;
 
+    // Drawn straight from the buffer, since the counts change nearly every frame
+    private final TextBuffer statsText;
+
+    private float statsX;
+
+    private float statsY;
+
+    private int drawnItems = -1;
+
+    private int culledItems = -1;
+
+    private long drawCalls = -1;
+
     private final Item compassItem;
 
     public Hud(String statusText) throws Exception {
-        FontTexture fontTexture = new FontTexture(FONT, CHARSET);
+        this.fontTexture = new FontTexture(FONT, CHARSET);
         this.statusTextItem = new TextItem(statusText, fontTexture);
         this.statusTextItem.getMesh().getMaterial().setAmbientColour(new Vector4f(1, 1, 1, 1));
+        this.statsText = new TextBuffer();
 
         // Create compass
         Mesh mesh = OBJLoader.loadMesh("/models/compass.obj");
@@ -50,6 +70,38 @@ public class Hud implements IHud {
         this.statusTextItem.setText(statusText);
     }
     
+    /**
+     * Show how many scene items were drawn and culled, and the frame's draw calls
+     * <br>
+     * The text is rewritten in place when a count changes,
+     * with no new String and no Mesh to rebuild.
+     * @param drawnItems items drawn last frame
+     * @param culledItems items culled last frame
+     * @param drawCalls draw calls over all passes last frame
+     */
+    public void setRenderStats(int drawnItems, int culledItems, long drawCalls) {
+        if (drawnItems == this.drawnItems && culledItems == this.culledItems && drawCalls == this.drawCalls) {
+            return;
+        }
+        this.drawnItems = drawnItems;
+        this.culledItems = culledItems;
+        this.drawCalls = drawCalls;
+        formatRenderStats(statsText, drawnItems, culledItems, drawCalls);
+    }
+    
+    /**
+     * Write the render stats line
+     * @param text the buffer to write to, cleared first
+     * @param drawnItems items drawn last frame
+     * @param culledItems items culled last frame
+     * @param drawCalls draw calls over all passes last frame
+     * @return the buffer
+     */
+    public static TextBuffer formatRenderStats(TextBuffer text, int drawnItems, int culledItems, long drawCalls) {
+        return text.clear().append("Drawn: ").append(drawnItems).append(" Culled: ").append(culledItems)
+                .append(" Draws: ").append(drawCalls);
+    }
+    
     public void rotateCompass(float angle) {
         this.compassItem.setRotation(0, 0, 180 + angle);
     }
@@ -58,9 +110,16 @@ public class Hud implements IHud {
     public Item[] getGameItems() {
         return gameItems;
     }
+    
+    @Override
+    public void queueText(HudBatch batch) {
+        batch.addText(statsText, fontTexture, statsX, statsY, TEXT_COLOUR);
+    }
    
     public void updateSize(Window window) {
         this.statusTextItem.setPosition(10f, window.getHeight() - 50f, 0);
+        this.statsX = 10f;
+        this.statsY = window.getHeight() - 80f;
         this.compassItem.setPosition(window.getWidth() - 40f, 50f, 0);
     }
 }
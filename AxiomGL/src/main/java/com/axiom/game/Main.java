@@ -1,11 +1,28 @@
 package com.axiom.game;
 
 import com.axiom.engine.Engine;
+import com.axiom.engine.HeadlessEngine;
 import com.axiom.engine.IGame;
 import com.axiom.game.Game;
 
 public class Main {	 
+    /**
+     * Run the demo
+     * <br>
+     * With --headless [ups] [ticks] only the simulation runs,
+     * without a window, at ups ticks per second (0, the
+     * default, for as fast as possible) until ticks ticks
+     * have run (0, the default, for no limit).
+     * @param args the command line
+     */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--headless")) {
+            int ups = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+            HeadlessEngine server = new HeadlessEngine(new Game(), ups);
+            server.setMaxTicks(args.length > 2 ? Long.parseLong(args[2]) : 0);
+            server.run();
+            return;
+        }
         try {
         		System.setProperty("java.awt.headless", "true");
             boolean vSync = true;
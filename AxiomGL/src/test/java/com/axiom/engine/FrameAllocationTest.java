@@ -0,0 +1,119 @@
+package com.axiom.engine;
+
+import java.lang.management.ManagementFactory;
+
+import org.joml.Vector3f;
+
+import com.axiom.engine.hud.TextBuffer;
+import com.axiom.engine.input.InputHandler;
+import com.axiom.engine.item.CollidableItem;
+import com.axiom.engine.math.Camera;
+import com.axiom.engine.math.FrameScratch;
+import com.axiom.game.Game;
+import com.axiom.game.Hud;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks that a steady state frame does not allocate
+ * <p>
+ * <br>
+ * Runs the CPU side of the demo's frames: the headless Game's
+ * input and update, the Renderer's culling and queueing through
+ * {@link Renderer#prepareScene}, and the Hud's stats line. The
+ * thread's allocated bytes counter is read around them.
+ * </p>
+ */
+public class FrameAllocationTest
+    extends TestCase
+{
+    private static final int WARMUP_FRAMES = 20000;
+    private static final int MEASURED_FRAMES = 1000;
+    private static final float INTERVAL = 1f / Engine.TARGET_UPS;
+
+    private Game game;
+    private Renderer renderer;
+    private InputHandler input;
+    private TextBuffer statsText;
+    private Vector3f corner;
+    private float sink;
+
+    public FrameAllocationTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( FrameAllocationTest.class );
+    }
+
+    protected void setUp() throws Exception
+    {
+        game = new Game();
+        game.initHeadless();
+        renderer = new Renderer();
+        input = new InputHandler();
+        statsText = new TextBuffer();
+        corner = new Vector3f();
+    }
+
+    /**
+     * The frame must not allocate once the arenas and queues have grown
+     */
+    public void testSteadyStateFrameDoesNotAllocate()
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            fail("Counting allocations needs a com.sun.management.ThreadMXBean, this JVM has " + bean.getClass().getName());
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            fail("This JVM cannot count the bytes a thread allocates");
+        }
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            frame(i);
+        }
+
+        // What reading the counter costs by itself
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long overhead = threads.getThreadAllocatedBytes(threadId) - before;
+
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            frame(i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        assertEquals("bytes allocated over " + MEASURED_FRAMES + " frames", 0, allocated);
+        assertTrue(renderer.getDrawnItems() > 0);
+        assertTrue(sink != 0);
+    }
+
+    private void frame(int n) {
+        Scene scene = game.getScene();
+        Camera camera = game.getCamera();
+
+        game.input(null, input);
+        game.storePreviousState();
+        // No keys can be pressed here, so turn the camera and push the free cube directly
+        camera.moveRotation(0.1f, 0.2f, 0);
+        CollidableItem movingItem = (CollidableItem) scene.getGameItems()[1];
+        Vector3f pos = movingItem.getPosition();
+        movingItem.setPosition(pos.x, pos.y, pos.z + ((n & 64) == 0 ? -0.01f : 0.01f));
+        game.update(INTERVAL, input);
+
+        renderer.prepareScene(camera, scene, 0.5f, 800, 600);
+        Hud.formatRenderStats(statsText, renderer.getDrawnItems(), renderer.getCulledItems(), n);
+        sink += statsText.length() + movingItem.min(corner).x + movingItem.max(corner).z;
+
+        FrameScratch.current().reset();
+    }
+}
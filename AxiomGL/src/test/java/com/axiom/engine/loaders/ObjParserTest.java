@@ -0,0 +1,66 @@
+package com.axiom.engine.loaders;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks the ObjParser's number parsing
+ * <p>
+ * <br>
+ * Every coordinate must come out as the same float
+ * {@link Float#parseFloat(String)} gives, whether the
+ * parser's fast path or its fallback read it.
+ * </p>
+ */
+public class ObjParserTest
+    extends TestCase
+{
+    private static final String[] NUMBERS = {
+        // Rounded to a double and then to a float these are one bit off
+        "2.63546884059906", "1.31867915391922",
+        "0.5", "-1", "+3.25", "0.000001", "123456.7", "16777216", "16777217",
+        "0.333333333333333", "-0.707106781186548", "9.99999999999999e-5",
+        "1e10", "1.5e-10", "3.4028235e38", "1.4e-45", "7.006492321624086e-46",
+        "0.1000000000000000055511151231257827", ".75", "-0.0"
+    };
+
+    public ObjParserTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ObjParserTest.class );
+    }
+
+    /**
+     * Positions must match Float.parseFloat bit for bit
+     */
+    public void testPositionsMatchFloatParseFloat() throws Exception
+    {
+        StringBuilder obj = new StringBuilder();
+        for (String number : NUMBERS) {
+            obj.append("v ").append(number).append(' ').append(number).append(' ').append(number).append('\n');
+        }
+        // One face per vertex keeps the vertices in file order
+        for (int i = 1; i <= NUMBERS.length; i++) {
+            obj.append("f ").append(i).append(' ').append(i).append(' ').append(i).append('\n');
+        }
+        MeshData data = new ObjParser().parse(Channels.newChannel(
+                new ByteArrayInputStream(obj.toString().getBytes(StandardCharsets.US_ASCII))));
+
+        assertEquals("position count", NUMBERS.length * 3, data.positions.length);
+        for (int i = 0; i < data.positions.length; i++) {
+            String number = NUMBERS[i / 3];
+            float expected = Float.parseFloat(number);
+            assertEquals(number + " should parse to " + expected + ", not " + data.positions[i],
+                    Float.floatToIntBits(expected), Float.floatToIntBits(data.positions[i]));
+        }
+    }
+}